@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+/**
+ * Compares the executors of the {@link BatchConverter} on a directory of generated maps:
+ * a pool with one platform thread per job and, on Java 21 or newer, one virtual thread per
+ * map with the renders limited to the number of jobs. The virtual thread executor fails on
+ * older runtimes. Each measured operation converts all maps of the directory.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class BatchBenchmark {
+
+    /** Executors of the batch conversion. */
+    public enum Executor {
+
+        /** One platform thread per job. */
+        PLATFORM,
+
+        /** One virtual thread per map, requires Java 21 or newer. */
+        VIRTUAL
+    }
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public Executor executor;
+
+    /** Number of generated maps in the directory. */
+    @Param({"64", "512"})
+    public int maps;
+
+    /** Size of each generated map, "&lt;topics&gt;-&lt;depth&gt;", see {@link MindMaps}. */
+    @Param({"200-3", "2000-5"})
+    public String size;
+
+    /** Number of parallel jobs, i.e., of parallel renders. */
+    @Param("4")
+    public int jobs;
+
+    /** Directory of the generated maps and the target files, deleted after each trial. */
+    private File directory;
+
+    private List<XMindToLatexExporter.Builder> builders;
+
+    private BatchConverter converter;
+
+    @Setup
+    public void setUpMaps() throws IOException {
+        converter = new BatchConverter(jobs, executor == Executor.VIRTUAL, null);
+        directory = Files.createTempDir();
+        File map = MindMaps.get(MindMaps.GENERATED_PREFIX + size, directory);
+        File output = new File(directory, "out");
+        output.mkdir();
+        builders = Lists.newArrayListWithCapacity(maps);
+        for (int i = 0; i < maps; i++) {
+            File input = new File(directory, "map-" + i + XMindContentReader.XMIND_FILE_EXTENSION);
+            Files.copy(map, input);
+            builders.add(new XMindToLatexExporter.Builder(input)
+                    .withTargetFile(new File(output, input.getName() + ".tex"))
+                    .overwritesExistingFiles(true));
+        }
+    }
+
+    @TearDown
+    public void tearDownMaps() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public int convert() throws InterruptedException {
+        BatchConverter.Result result = converter.convert(builders);
+        if (!result.isSuccessful()) {
+            throw new IllegalStateException("Conversion failed: " + result.getFailures());
+        }
+        return result.getConverted();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the JMH command line options and always adds the {@link GCProfiler},
+ * thus the allocation rate is reported next to the throughput.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private BenchmarkRunner() {
+
+    }
+
+    /**
+     * @param args JMH command line options, e.g., a regular expression that selects the benchmarks
+     * @throws CommandLineOptionException if the given options are invalid
+     * @throws RunnerException if a benchmark fails
+     * @throws IOException if the help message cannot be printed
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams()
+                || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+            // only JMH itself prints help messages and lists
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.SAXException;
+
+/**
+ * Measures complete conversions by {@link XMindToLatexExporter#convert()}, i.e., all phases
+ * from unzipping the XMind file to writing the target file.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class ConvertBenchmark extends MapBenchmark {
+
+    @Param("DEFAULT")
+    public TemplateSet templates;
+
+    private XMindToLatexExporter exporter;
+
+    @Setup
+    public void setUpExporter() {
+        exporter = templates.configure(new XMindToLatexExporter.Builder(input))
+                .withTargetFile(new File(directory, "target.tex"))
+                .overwritesExistingFiles(true)
+                .build();
+    }
+
+    @TearDown
+    public void tearDownExporter() throws IOException {
+        exporter.close();
+    }
+
+    @Benchmark
+    public void convert() throws ParserConfigurationException, SAXException, IOException {
+        exporter.convert();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.Files;
+
+/**
+ * Base of the benchmarks that measure a conversion phase for each of the {@link MindMaps}.
+ * The measured map is selected by the parameter {@link #map}, its XMind file and its
+ * inflated content are prepared once per trial.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+public abstract class MapBenchmark {
+
+    /** Name of the measured map, see {@link MindMaps}. */
+    @Param({"example.xmind", "jms.xmind", "generated-1000-3", "generated-10000-5", "generated-100000-8"})
+    public String map;
+
+    /** Directory of generated maps and written files, deleted after each trial. */
+    protected File directory;
+
+    /** XMind file of the measured map. */
+    protected File input;
+
+    /** Inflated content.xml of the measured map. */
+    protected byte[] content;
+
+    @Setup
+    public void setUpMap() throws IOException {
+        directory = Files.createTempDir();
+        input = MindMaps.get(map, directory);
+        content = MindMaps.readContent(input);
+    }
+
+    @TearDown
+    public void tearDownMap() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Provides the mind maps that are measured by the benchmarks. Maps are either XMind files
+ * from the test resources of xmind2latex, e.g., "jms.xmind", or generated maps named
+ * "generated-&lt;topics&gt;-&lt;depth&gt;" that are written by the {@link MindMapGenerator}
+ * with the given number of topics and depth. The test resources are located in the directory
+ * given by the system property {@value #RESOURCES_PROPERTY}, default is "../src/test/resources".
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class MindMaps {
+
+    /** System property that contains the directory of the xmind2latex test resources. */
+    public static final String RESOURCES_PROPERTY = "xmind2latex.resources";
+
+    /** Prefix of the names of generated maps. */
+    public static final String GENERATED_PREFIX = "generated-";
+
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private MindMaps() {
+
+    }
+
+    /**
+     * @param name name of a map in the test resources or of a generated map
+     * @param directory directory that receives generated maps
+     * @return the XMind file of the given map
+     * @throws FileNotFoundException if the given map is neither generated nor contained in the test resources
+     * @throws IOException if a generated map cannot be written
+     */
+    public static File get(String name, File directory) throws IOException {
+        if (name.startsWith(GENERATED_PREFIX)) {
+            String[] size = name.substring(GENERATED_PREFIX.length()).split("-");
+            File map = new File(directory, name + XMindContentReader.XMIND_FILE_EXTENSION);
+            new MindMapGenerator.Builder()
+                    .withTopics(Integer.parseInt(size[0]))
+                    .withDepth(Integer.parseInt(size[1]))
+                    .build().write(map);
+            return map;
+        }
+        File map = new File(System.getProperty(RESOURCES_PROPERTY, "../src/test/resources"), name);
+        if (!map.exists()) {
+            throw new FileNotFoundException("The map " + map.getAbsolutePath() + " does not exist, set "
+                    + RESOURCES_PROPERTY + " to the test resources of xmind2latex.");
+        }
+        return map;
+    }
+
+    /**
+     * @param map an XMind file
+     * @return the inflated content.xml of the given map
+     * @throws IOException if the map cannot be read
+     */
+    public static byte[] readContent(File map) throws IOException {
+        InputStream is = XMindContentReader.open(map);
+        try {
+            return ByteStreams.toByteArray(is);
+        }
+        finally {
+            is.close();
+        }
+    }
+}
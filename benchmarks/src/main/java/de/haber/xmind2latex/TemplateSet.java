@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static de.haber.xmind2latex.XMindToLatexExporter.TEMPLATE_PACKAGE;
+
+/**
+ * Template configurations of the {@link XMindToLatexExporter} that are measured by the benchmarks.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public enum TemplateSet {
+
+    /** The default templates. */
+    DEFAULT {
+        @Override
+        XMindToLatexExporter.Builder configure(XMindToLatexExporter.Builder builder) {
+            return builder;
+        }
+    },
+
+    /** Enumerations on level 4 and itemizations on level 5, each with item templates. */
+    ENVIRONMENT {
+        @Override
+        XMindToLatexExporter.Builder configure(XMindToLatexExporter.Builder builder) {
+            return builder
+                    .withEnvironmentTemplates(4, TEMPLATE_PACKAGE + "env.startEnumerate", TEMPLATE_PACKAGE + "env.endEnumerate")
+                    .withEnvironmentTemplates(5, TEMPLATE_PACKAGE + "env.startItemize", TEMPLATE_PACKAGE + "env.endItemize")
+                    .withTemplate(4, TEMPLATE_PACKAGE + "env.item")
+                    .withTemplate(5, TEMPLATE_PACKAGE + "env.item");
+        }
+    },
+
+    /** Templates are used up to level 2, deeper levels are rendered as indented comments. */
+    MAX_LEVEL {
+        @Override
+        XMindToLatexExporter.Builder configure(XMindToLatexExporter.Builder builder) {
+            return builder.withMaxLevel(2);
+        }
+    };
+
+    /**
+     * @param builder builder of the measured exporter
+     * @return the given builder configured with this template set
+     */
+    abstract XMindToLatexExporter.Builder configure(XMindToLatexExporter.Builder builder);
+}
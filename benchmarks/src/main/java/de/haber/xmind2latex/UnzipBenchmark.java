@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Measures how fast the content.xml of an XMind file is located and inflated.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class UnzipBenchmark extends MapBenchmark {
+
+    @Benchmark
+    public long unzip() throws IOException {
+        InputStream is = XMindContentReader.open(input);
+        try {
+            return ByteStreams.copy(is, ByteStreams.nullOutputStream());
+        }
+        finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Setup;
+import org.xml.sax.SAXException;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Measures how fast the rendered content is written to the target file. The content is rendered
+ * once with the {@link TemplateSet#DEFAULT} templates and written line by line through the
+ * same writers the {@link XMindToLatexExporter} uses.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class WriteBenchmark extends MapBenchmark {
+
+    private String[] lines;
+
+    private File target;
+
+    @Setup
+    public void setUpLines() throws ParserConfigurationException, SAXException, IOException {
+        StringWriter rendered = new StringWriter();
+        try (XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(input).build()) {
+            exporter.render(new ByteArrayInputStream(content), rendered);
+        }
+        lines = rendered.toString().split(XMindToLatexExporter.NEW_LINE);
+        target = new File(directory, "target.tex");
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target), Charsets.UTF_8));
+        try {
+            for (String line : lines) {
+                out.write(line);
+                out.write(XMindToLatexExporter.NEW_LINE);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+}
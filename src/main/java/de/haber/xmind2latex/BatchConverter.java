@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import de.haber.xmind2latex.XMindToLatexExporter.Builder;
+
+/**
+ * Converts several input files in parallel. On Java 21 or newer, each conversion runs on a
+ * virtual thread of its own, and only the rendering is limited to the number of jobs by a
+ * semaphore, thus conversions that wait for file I/O do not block the others. On older
+ * runtimes, the conversions run on a pool with one platform thread per job. Equally configured
+ * inputs share a single {@link XMindToLatexExporter}, thus every template is resolved only once
+ * per run. A failing conversion does not stop the remaining ones.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class BatchConverter {
+    
+    /**
+     * Outcome of a batch conversion.
+     */
+    public static final class Result {
+        
+        private final int converted;
+        
+        private final Map<File, Throwable> failures;
+        
+        private final List<ConversionResult> results;
+        
+        private Result(int converted, Map<File, Throwable> failures, List<ConversionResult> results) {
+            this.converted = converted;
+            this.failures = ImmutableMap.copyOf(failures);
+            this.results = ImmutableList.copyOf(results);
+        }
+        
+        /**
+         * @return the number of successfully converted input files
+         */
+        public int getConverted() {
+            return converted;
+        }
+        
+        /**
+         * @return the cause of each failed conversion by input file, in input order
+         */
+        public Map<File, Throwable> getFailures() {
+            return failures;
+        }
+        
+        /**
+         * @return the result of each successful conversion, in input order
+         */
+        public List<ConversionResult> getResults() {
+            return results;
+        }
+        
+        /**
+         * @return true, if all input files have been converted
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+    }
+    
+    /** Maximal number of parallel conversions. */
+    private final int jobs;
+    
+    /** True, if the conversions run on virtual threads. */
+    private final boolean virtualThreads;
+    
+    /** Limits the parallel renders, shared by all conversions of this converter. */
+    private final Semaphore renderPermits;
+    
+    /**
+     * @param jobs maximal number of parallel conversions, has to be > 0
+     */
+    public BatchConverter(int jobs) {
+        this(jobs, ConversionExecutors.isVirtualThreadsAvailable(), null);
+    }
+    
+    /**
+     * @param jobs maximal number of parallel conversions, has to be > 0
+     * @param virtualThreads true, if the conversions are to be run on virtual threads
+     * @param renderPermits limits the parallel renders, e.g., of all requests of a {@link Daemon},
+     * null if the renders are limited to the number of jobs
+     * @throws UnsupportedOperationException if virtual threads are requested, but not available
+     */
+    BatchConverter(int jobs, boolean virtualThreads, Semaphore renderPermits) {
+        checkArgument(jobs > 0, "The number of jobs has to be positive.");
+        if (virtualThreads && !ConversionExecutors.isVirtualThreadsAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+        }
+        this.jobs = jobs;
+        this.virtualThreads = virtualThreads;
+        this.renderPermits = renderPermits != null ? renderPermits : new Semaphore(jobs);
+    }
+    
+    /**
+     * @return true, if the conversions run on virtual threads
+     * 
+     * @since 1.3.0
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    /**
+     * Converts the input file of each of the given builders. Builders with equal configurations
+     * share a single exporter that converts all of their inputs into their target files, thus
+     * templates are resolved once per configuration. The exporters are closed after all
+     * conversions.
+     * 
+     * @param builders configured builders with input files, must not be null
+     * @return the outcome of all conversions
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the conversions
+     */
+    public Result convert(List<Builder> builders) throws InterruptedException {
+        checkNotNull(builders);
+        if (builders.isEmpty()) {
+            return new Result(0, ImmutableMap.<File, Throwable> of(), ImmutableList.<ConversionResult> of());
+        }
+        Map<List<Object>, XMindToLatexExporter> exporters = Maps.newHashMap();
+        Map<List<Object>, RuntimeException> buildFailures = Maps.newHashMap();
+        ExecutorService executor = ConversionExecutors.newExecutor("xmind2latex", Math.min(jobs, builders.size()), virtualThreads);
+        try {
+            List<Future<ConversionResult>> futures = Lists.newArrayListWithCapacity(builders.size());
+            for (final Builder builder : builders) {
+                checkArgument(builder.getInputFile() != null, "The builders of a batch need input files.");
+                List<Object> configuration = builder.getConfiguration();
+                XMindToLatexExporter exporter = exporters.get(configuration);
+                if (exporter == null && !buildFailures.containsKey(configuration)) {
+                    try {
+                        exporter = builder.copy(null).build();
+                        exporters.put(configuration, exporter);
+                    }
+                    catch (RuntimeException e) {
+                        buildFailures.put(configuration, e);
+                    }
+                }
+                if (exporter == null) {
+                    // the failure of the build is reported for each of its inputs
+                    futures.add(null);
+                    continue;
+                }
+                final XMindToLatexExporter shared = exporter;
+                futures.add(executor.submit(() -> shared.convert(builder.getInputFile(), builder.getTargetFile(), renderPermits)));
+            }
+            
+            int converted = 0;
+            Map<File, Throwable> failures = Maps.newLinkedHashMap();
+            List<ConversionResult> results = Lists.newArrayListWithCapacity(builders.size());
+            for (int i = 0; i < futures.size(); i++) {
+                Builder builder = builders.get(i);
+                if (futures.get(i) == null) {
+                    failures.put(builder.getInputFile(), buildFailures.get(builder.getConfiguration()));
+                    continue;
+                }
+                try {
+                    results.add(futures.get(i).get());
+                    converted++;
+                }
+                catch (ExecutionException e) {
+                    failures.put(builder.getInputFile(), e.getCause());
+                }
+            }
+            return new Result(converted, failures, results);
+        }
+        finally {
+            executor.shutdownNow();
+            for (XMindToLatexExporter exporter : exporters.values()) {
+                try {
+                    exporter.close();
+                }
+                catch (IOException e) {
+                    // only streams that callers did not close remain, the conversions are complete
+                }
+            }
+        }
+    }
+}
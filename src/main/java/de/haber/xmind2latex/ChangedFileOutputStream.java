@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+/**
+ * Replaces an existing file only if the written content is complete. An existing file is
+ * written into a temporary file next to it that replaces the file on {@link #close()}, a
+ * failed conversion that calls {@link #abort()} leaves the existing file untouched.<br>
+ * <br>
+ * If the content is compared, the file is only written if its content changes. Written bytes
+ * are compared chunk-wise with the existing file. As long as they match, nothing is written.
+ * At the first difference, the matching prefix is copied into the temporary file and all
+ * further bytes are written into it. If the written content is identical to the existing file,
+ * the file and its modification time are left untouched.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class ChangedFileOutputStream extends OutputStream {
+    
+    private final File target;
+    
+    /** Existing content that is compared with the written bytes, null after the first difference. */
+    private InputStream existing;
+    
+    /** Number of written bytes that match the existing content. */
+    private long matched = 0;
+    
+    /** Buffer for existing content. */
+    private byte[] buffer = new byte[0];
+    
+    /** Receives all bytes after the first difference. */
+    private OutputStream out;
+    
+    /** Temporary file that replaces the target, null if the target is written directly. */
+    private File tmp;
+    
+    private boolean closed = false;
+    
+    /**
+     * @param target the file to write, must not be null
+     * @param compare true, if an existing file is only replaced if its content changes
+     * @throws IOException if the existing file cannot be opened
+     */
+    ChangedFileOutputStream(File target, boolean compare) throws IOException {
+        this.target = checkNotNull(target);
+        if (!target.isFile()) {
+            out = new BufferedOutputStream(new FileOutputStream(target));
+        }
+        else if (compare) {
+            existing = new BufferedInputStream(new FileInputStream(target));
+        }
+        else {
+            diverge();
+        }
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkState(!closed, "The stream has already been closed.");
+        if (out == null) {
+            if (buffer.length < len) {
+                buffer = new byte[len];
+            }
+            int read = ByteStreams.read(existing, buffer, 0, len);
+            int i = 0;
+            while (i < read && buffer[i] == b[off + i]) {
+                i++;
+            }
+            if (i == len) {
+                matched += len;
+                return;
+            }
+            diverge();
+        }
+        out.write(b, off, len);
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+    
+    /**
+     * Stops comparing and copies the matching prefix of the existing file into a temporary file.
+     */
+    private void diverge() throws IOException {
+        if (existing != null) {
+            existing.close();
+            existing = null;
+        }
+        tmp = Files.createTempFile(target.getAbsoluteFile().getParentFile().toPath(), target.getName() + ".", ".tmp").toFile();
+        try {
+            // temporary files are only accessible by their owner, the replaced file keeps its permissions
+            Files.setPosixFilePermissions(tmp.toPath(), Files.getPosixFilePermissions(target.toPath()));
+        }
+        catch (UnsupportedOperationException e) {
+            // no POSIX file system
+        }
+        catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        out = new BufferedOutputStream(new FileOutputStream(tmp));
+        if (matched > 0) {
+            try (InputStream prefix = new FileInputStream(target)) {
+                ByteStreams.copy(ByteStreams.limit(prefix, matched), out);
+            }
+        }
+    }
+    
+    /**
+     * Completes the file. If the content changed, the target is replaced.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (out == null) {
+            // the existing file may be longer than the written content
+            if (existing.read() == -1) {
+                existing.close();
+                closed = true;
+                return;
+            }
+            diverge();
+        }
+        closed = true;
+        if (tmp == null) {
+            out.close();
+            return;
+        }
+        try {
+            out.close();
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            // only left over, if the content could not be completed
+            tmp.delete();
+        }
+    }
+    
+    /**
+     * Discards all written bytes. An existing file is left untouched, a new file is removed.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            Closeables.close(existing, true);
+            Closeables.close(out, true);
+        }
+        catch (IOException e) {
+            // not thrown, since exceptions are swallowed
+        }
+        if (tmp != null) {
+            tmp.delete();
+        }
+        else if (existing == null) {
+            target.delete();
+        }
+    }
+    
+    /**
+     * @return true, if the target file has been written. Only valid after {@link #close()}.
+     */
+    boolean isChanged() {
+        return out != null;
+    }
+}
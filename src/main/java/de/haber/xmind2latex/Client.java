@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Thin client of a {@link Daemon}. The arguments are sent to the daemon that is published in
+ * {@link Daemon#DAEMON_FILE}, messages and the exit status of the conversion are returned.
+ * Relative file names are resolved against the working directory of the client. If no daemon
+ * runs, the arguments are executed locally, see {@link Main}.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class Client {
+    
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private Client() {
+        
+    }
+    
+    /**
+     * Executes the given arguments with a running daemon, or locally.
+     * 
+     * @param args configuration arguments, see {@link Main#main(String[])}
+     */
+    public static void main(String[] args) {
+        int status = run(args, Daemon.DAEMON_FILE, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+    
+    /**
+     * @param args configuration arguments
+     * @param daemonFile file the daemon is published in
+     * @param out receives messages
+     * @param err receives error messages
+     * @return the exit status, 0 on success
+     */
+    static int run(String[] args, File daemonFile, PrintStream out, PrintStream err) {
+        return run(args, daemonFile, new File("").getAbsoluteFile(), out, err);
+    }
+    
+    /**
+     * @param args configuration arguments
+     * @param daemonFile file the daemon is published in
+     * @param directory absolute directory relative file names are resolved against
+     * @param out receives messages
+     * @param err receives error messages
+     * @return the exit status, 0 on success
+     */
+    static int run(String[] args, File daemonFile, File directory, PrintStream out, PrintStream err) {
+        Properties daemon = new Properties();
+        if (daemonFile.isFile()) {
+            try (InputStream in = Files.newInputStream(daemonFile.toPath())) {
+                daemon.load(in);
+            }
+            catch (IOException e) {
+                daemon.clear();
+            }
+        }
+        
+        Socket socket;
+        try {
+            socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(daemon.getProperty(Daemon.KEY_PORT)));
+        }
+        catch (IOException | NumberFormatException e) {
+            // no daemon has been published, or it does not run anymore
+            socket = null;
+        }
+        if (socket == null) {
+            return Main.run(args, out, err, true, null, directory);
+        }
+        
+        try (Socket s = socket) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            request.writeUTF(daemon.getProperty(Daemon.KEY_TOKEN, ""));
+            request.writeUTF(directory.getPath());
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+            
+            DataInputStream response = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            while (true) {
+                int type = response.readByte();
+                if (type == Daemon.FRAME_EXIT) {
+                    return response.readInt();
+                }
+                byte[] frame = new byte[response.readInt()];
+                response.readFully(frame);
+                PrintStream target = type == Daemon.FRAME_ERR ? err : out;
+                target.write(frame);
+                target.flush();
+            }
+        }
+        catch (EOFException e) {
+            err.println("The daemon closed the connection.");
+            return -1;
+        }
+        catch (IOException e) {
+            err.println("Lost connection to the daemon: " + e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Creates the executors of batch and daemon conversions. On Java 21 or newer, each task runs
+ * on a virtual thread of its own, thus conversions that wait for file I/O do not occupy a
+ * platform thread. The virtual thread API is looked up reflectively, because the build targets
+ * Java 11. On older runtimes, a bounded pool of platform threads is used instead. Neither
+ * executor limits the CPU-bound rendering, see {@link XMindToLatexExporter#convert(java.util.concurrent.Semaphore)}.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class ConversionExecutors {
+    
+    /** Thread.ofVirtual(), null before Java 21. */
+    private static final MethodHandle OF_VIRTUAL;
+    
+    /** Thread.Builder.OfVirtual.name(String, long) */
+    private static final MethodHandle NAME;
+    
+    /** Thread.Builder.factory() */
+    private static final MethodHandle FACTORY;
+    
+    /** Executors.newThreadPerTaskExecutor(ThreadFactory) */
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+    
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builder));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        }
+        catch (ReflectiveOperationException e) {
+            // virtual threads are not available before Java 21
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+    
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private ConversionExecutors() {
+        
+    }
+    
+    /**
+     * @return true, if the runtime supports virtual threads, i.e., Java 21 or newer
+     */
+    static boolean isVirtualThreadsAvailable() {
+        return OF_VIRTUAL != null;
+    }
+    
+    /**
+     * Creates an executor that runs each task on a new virtual thread, if available, or
+     * on a bounded pool of daemon platform threads otherwise.
+     * 
+     * @param name prefix of the thread names
+     * @param threads number of platform threads, if virtual threads are not available
+     * @return a new executor that has to be shut down by the caller
+     */
+    static ExecutorService newExecutor(String name, int threads) {
+        return newExecutor(name, threads, isVirtualThreadsAvailable());
+    }
+    
+    /**
+     * Creates an executor that runs each task on a new virtual thread or on a bounded pool of
+     * daemon platform threads.
+     * 
+     * @param name prefix of the thread names
+     * @param threads number of platform threads, ignored for virtual threads
+     * @param virtualThreads true, if tasks are to be run on virtual threads
+     * @return a new executor that has to be shut down by the caller
+     * @throws UnsupportedOperationException if virtual threads are requested, but not available
+     */
+    static ExecutorService newExecutor(String name, int threads, boolean virtualThreads) {
+        if (!virtualThreads) {
+            return Executors.newFixedThreadPool(threads,
+                    new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+        }
+        if (!isVirtualThreadsAvailable()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(), name + "-", 0L);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke((ThreadFactory) FACTORY.invoke(builder));
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            // the looked up methods do not throw checked exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Result of {@link XMindToLatexExporter#convert()}. Detailed statistics, i.e., phase times,
+ * topics per level, template renders and the peak heap usage, are only available if they have
+ * been enabled with {@link XMindToLatexExporter.Builder#collectsStatistics(boolean)}.
+ * If subtrees are rendered in parallel, the phase times are those of the converting thread,
+ * which waits for the subtrees in {@link Phase#RENDER}, while the template render times are
+ * summed over all render threads.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public final class ConversionResult {
+
+    /**
+     * Phases of a conversion. The time of each phase excludes the time of other phases it
+     * triggers, e.g., a render that flushes the output is only charged for the render itself.
+     */
+    public enum Phase {
+
+        /** Reading and inflating the XMind content. */
+        UNZIP,
+
+        /** Parsing the XMind content and traversing its topics. */
+        PARSE,
+
+        /** Rendering templates. */
+        RENDER,
+
+        /** Writing the target file. */
+        WRITE
+    }
+
+    /**
+     * Number of renders and the time spent in a template.
+     */
+    public static final class TemplateStatistics {
+
+        private final int renders;
+
+        private final long time;
+
+        TemplateStatistics(int renders, long time) {
+            this.renders = renders;
+            this.time = time;
+        }
+
+        /**
+         * @return how often the template has been rendered
+         */
+        public int getRenders() {
+            return renders;
+        }
+
+        /**
+         * @return cumulative render time in nanoseconds
+         */
+        public long getTime() {
+            return time;
+        }
+    }
+
+    private final File inputFile;
+
+    private final File targetFile;
+
+    private final boolean skipped;
+
+    private final long time;
+
+    private final long outputBytes;
+
+    private final Map<Phase, Long> phaseTimes;
+
+    private final SortedMap<Integer, Integer> topicsPerLevel;
+
+    private final SortedMap<String, TemplateStatistics> templates;
+
+    private final long peakHeapUsed;
+
+    /**
+     * @param chapterDirectory directory of the chapter files, null if no chapter files are written
+     * @param statistics collected statistics, null if statistics have not been collected
+     */
+    ConversionResult(File inputFile, File targetFile, File chapterDirectory, boolean skipped, long time,
+            StatisticsCollector statistics) {
+        this.inputFile = checkNotNull(inputFile);
+        this.targetFile = checkNotNull(targetFile);
+        this.skipped = skipped;
+        this.time = time;
+        long bytes = targetFile.length();
+        if (chapterDirectory != null) {
+            for (int chapter = 1;; chapter++) {
+                File chapterFile = XMindToLatexExporter.getChapterFile(chapterDirectory, chapter);
+                if (!chapterFile.exists()) {
+                    break;
+                }
+                bytes += chapterFile.length();
+            }
+        }
+        this.outputBytes = bytes;
+        if (statistics != null) {
+            phaseTimes = ImmutableMap.copyOf(statistics.getPhaseTimes());
+            topicsPerLevel = ImmutableSortedMap.copyOf(statistics.getTopicsPerLevel());
+            templates = ImmutableSortedMap.copyOf(statistics.getTemplates());
+            peakHeapUsed = statistics.getPeakHeapUsed();
+        }
+        else {
+            phaseTimes = null;
+            topicsPerLevel = null;
+            templates = null;
+            peakHeapUsed = -1;
+        }
+    }
+
+    /**
+     * @return the converted input file
+     */
+    public File getInputFile() {
+        return inputFile;
+    }
+
+    /**
+     * @return the target file
+     */
+    public File getTargetFile() {
+        return targetFile;
+    }
+
+    /**
+     * @return true, if the input has not been converted because neither the input, the templates
+     * nor the target file changed since the previous conversion
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return wall time of the conversion in nanoseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the size of the target file and its chapter files in bytes
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * @return true, if the detailed statistics have been collected
+     */
+    public boolean hasStatistics() {
+        return phaseTimes != null;
+    }
+
+    /**
+     * @param phase a conversion phase
+     * @return the wall time of the given phase in nanoseconds, 0 if no statistics have been collected
+     */
+    public long getPhaseTime(Phase phase) {
+        if (!hasStatistics()) {
+            return 0;
+        }
+        Long phaseTime = phaseTimes.get(phase);
+        return phaseTime != null ? phaseTime : 0;
+    }
+
+    /**
+     * @return the number of topics by level, empty if no statistics have been collected
+     */
+    public SortedMap<Integer, Integer> getTopicsPerLevel() {
+        return hasStatistics() ? topicsPerLevel : ImmutableSortedMap.<Integer, Integer> of();
+    }
+
+    /**
+     * @return render statistics by template name, empty if no statistics have been collected
+     */
+    public SortedMap<String, TemplateStatistics> getTemplateStatistics() {
+        return hasStatistics() ? templates : ImmutableSortedMap.<String, TemplateStatistics> of();
+    }
+
+    /**
+     * @return the highest heap usage of the JVM that has been sampled at the phase boundaries of
+     * the conversion in bytes, -1 if unknown. Garbage that is allocated and collected between two
+     * samples is missed. Parallel conversions share the heap, their usage is included.
+     */
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    /**
+     * Prints a human readable report of this result.
+     *
+     * @param out receives the report
+     */
+    public void print(PrintStream out) {
+        out.println("Statistics of " + inputFile + " -> " + targetFile + ":");
+        if (skipped) {
+            out.println("  skipped, unchanged since the previous conversion");
+            return;
+        }
+        StringBuilder line = new StringBuilder("  time: ").append(millis(time));
+        if (hasStatistics()) {
+            String separator = " (";
+            for (Phase phase : Phase.values()) {
+                line.append(separator).append(phase.name().toLowerCase(Locale.ENGLISH)).append(' ').append(millis(getPhaseTime(phase)));
+                separator = ", ";
+            }
+            line.append(')');
+        }
+        out.println(line);
+        out.println("  output: " + outputBytes + " bytes");
+        if (!hasStatistics()) {
+            return;
+        }
+        if (peakHeapUsed >= 0) {
+            out.println(String.format(Locale.ENGLISH, "  peak heap: %.1f MB", peakHeapUsed / (1024.0 * 1024.0)));
+        }
+        line = new StringBuilder("  topics per level:");
+        for (Map.Entry<Integer, Integer> level : topicsPerLevel.entrySet()) {
+            line.append(' ').append(level.getKey()).append(": ").append(level.getValue());
+        }
+        out.println(line);
+        out.println("  templates:");
+        for (Map.Entry<String, TemplateStatistics> template : templates.entrySet()) {
+            out.println("    " + template.getKey() + ": " + template.getValue().getRenders() + " renders, "
+                    + millis(template.getValue().getTime()));
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ENGLISH, "%.1f ms", nanos / 1000000.0);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Records the state of a conversion: the XMind content, the input file, the template
+ * configuration, the chapter directory and the written target and chapter files. If the
+ * recorded state of the previous conversion matches the current state, the conversion may
+ * be skipped.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class ConversionStamp {
+    
+    /** Version of the stamp file format. */
+    private static final String FORMAT_VERSION = "2";
+    
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_INPUT = "input";
+    private static final String KEY_CONTENT = "content";
+    private static final String KEY_TEMPLATES = "templates";
+    private static final String KEY_TARGET_SIZE = "target.size";
+    private static final String KEY_TARGET_MODIFIED = "target.modified";
+    private static final String KEY_CHAPTERS = "chapters";
+    private static final String KEY_CHAPTER_COUNT = "chapters.count";
+    private static final String KEY_CHAPTER_SIZE = "chapter.%d.size";
+    private static final String KEY_CHAPTER_MODIFIED = "chapter.%d.modified";
+    
+    private final Properties values = new Properties();
+    
+    /** directory of the chapter files, null if no chapter files are written */
+    private final File chapterDirectory;
+    
+    /**
+     * @param input the input file, must not be null
+     * @param content stamp of the XMind content, must not be null
+     * @param templates fingerprint of the template configuration, must not be null
+     * @param chapterDirectory directory of the chapter files, null if no chapter files are written
+     */
+    ConversionStamp(File input, String content, String templates, File chapterDirectory) {
+        values.setProperty(KEY_VERSION, FORMAT_VERSION);
+        values.setProperty(KEY_INPUT, checkNotNull(input).getAbsolutePath());
+        values.setProperty(KEY_CONTENT, checkNotNull(content));
+        values.setProperty(KEY_TEMPLATES, checkNotNull(templates));
+        values.setProperty(KEY_CHAPTERS, chapterDirectory != null ? chapterDirectory.getAbsolutePath() : "");
+        this.chapterDirectory = chapterDirectory;
+    }
+    
+    /**
+     * @param stampFile stamp of the previous conversion, must not be null
+     * @param target target file of the previous conversion, must not be null
+     * @return true, if the given stamp file records this stamp and neither the target file
+     * nor the chapter files have been changed since they have been written.
+     */
+    boolean isCurrent(File stampFile, File target) {
+        if (!stampFile.isFile() || !target.isFile()) {
+            return false;
+        }
+        Properties previous = new Properties();
+        try (InputStream in = Files.newInputStream(stampFile.toPath())) {
+            previous.load(in);
+        }
+        catch (IOException e) {
+            return false;
+        }
+        for (String key : values.stringPropertyNames()) {
+            if (!values.getProperty(key).equals(previous.getProperty(key))) {
+                return false;
+            }
+        }
+        if (!isCurrent(previous, target, KEY_TARGET_SIZE, KEY_TARGET_MODIFIED)) {
+            return false;
+        }
+        if (chapterDirectory != null) {
+            int chapters;
+            try {
+                chapters = Integer.parseInt(previous.getProperty(KEY_CHAPTER_COUNT, ""));
+            }
+            catch (NumberFormatException e) {
+                return false;
+            }
+            for (int chapter = 1; chapter <= chapters; chapter++) {
+                File chapterFile = XMindToLatexExporter.getChapterFile(chapterDirectory, chapter);
+                if (!chapterFile.isFile() || !isCurrent(previous, chapterFile,
+                        String.format(Locale.ENGLISH, KEY_CHAPTER_SIZE, chapter),
+                        String.format(Locale.ENGLISH, KEY_CHAPTER_MODIFIED, chapter))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return true, if the size and the modification time of the given file match the recorded ones
+     */
+    private static boolean isCurrent(Properties previous, File file, String sizeKey, String modifiedKey) {
+        return Long.toString(file.length()).equals(previous.getProperty(sizeKey))
+                && Long.toString(file.lastModified()).equals(previous.getProperty(modifiedKey));
+    }
+    
+    /**
+     * Stores this stamp together with the size and the modification time of the written
+     * target file and chapter files. The stamp file is replaced as a whole.
+     * 
+     * @param stampFile the stamp file, must not be null
+     * @param target the written target file, must not be null
+     * @throws IOException if the stamp file cannot be written
+     */
+    void save(File stampFile, File target) throws IOException {
+        Properties stamp = new Properties();
+        stamp.putAll(values);
+        stamp.setProperty(KEY_TARGET_SIZE, Long.toString(target.length()));
+        stamp.setProperty(KEY_TARGET_MODIFIED, Long.toString(target.lastModified()));
+        if (chapterDirectory != null) {
+            int chapters = 0;
+            for (File chapterFile = XMindToLatexExporter.getChapterFile(chapterDirectory, 1); chapterFile.isFile();
+                    chapterFile = XMindToLatexExporter.getChapterFile(chapterDirectory, chapters + 1)) {
+                chapters++;
+                stamp.setProperty(String.format(Locale.ENGLISH, KEY_CHAPTER_SIZE, chapters), Long.toString(chapterFile.length()));
+                stamp.setProperty(String.format(Locale.ENGLISH, KEY_CHAPTER_MODIFIED, chapters), Long.toString(chapterFile.lastModified()));
+            }
+            stamp.setProperty(KEY_CHAPTER_COUNT, Integer.toString(chapters));
+        }
+        File tmp = new File(stampFile.getPath() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            stamp.store(out, "xmind2latex conversion stamp");
+        }
+        Files.move(tmp.toPath(), stampFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
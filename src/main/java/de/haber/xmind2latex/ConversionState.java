@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+/**
+ * State of a single conversion of an {@link XMindToLatexExporter}: the depth of the current
+ * topic, the render cache and the statistics of the conversion, the subtrees that are rendered
+ * in parallel, and the reused data models and buffers of its renders. The exporter itself only
+ * holds its immutable configuration, thus it may run several conversions concurrently, each
+ * with its own state. Not thread-safe, a conversion runs on a single thread.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class ConversionState {
+
+    /** depth of the current topic, 0 outside of topics */
+    int depth = 0;
+
+    /** render cache of the conversion, null if the render cache is disabled */
+    final RenderCache renderCache;
+
+    /** statistics of the conversion, null if no statistics are collected */
+    final StatisticsCollector statistics;
+
+    /** pool that renders the subtrees of the conversion, null if topics are rendered serially */
+    ForkJoinPool renderPool;
+
+    /** output of a conversion whose subtrees are rendered in parallel, null if topics are rendered serially */
+    ParallelRendering parallel;
+
+    /** subtree that is recorded for parallel rendering, null outside of such subtrees */
+    Subtree subtree;
+
+    /** directory of the chapter files, null if no chapter files are written */
+    File chapterDirectory;
+
+    /** number of chapter files of the conversion */
+    int chapters = 0;
+
+    /** tasks that render the chapter files, which are replaced after the conversion succeeded */
+    final List<XMindToLatexExporter.SubtreeTask> chapterTasks = Lists.newArrayList();
+
+    /** reused buffer of templates that are rendered into a string */
+    final StringWriter renderBuffer = new StringWriter();
+
+    /** first level that is rendered as inner level */
+    private final int firstInnerLevel;
+
+    /** reused data models of the templates by level, created on demand */
+    private LevelModel[] levelModels = new LevelModel[0];
+
+    /**
+     * @param firstInnerLevel first level that is rendered as inner level, i.e., with the undefined template
+     * @param renderCache render cache of the conversion, may be null
+     * @param statistics statistics of the conversion, may be null
+     */
+    ConversionState(int firstInnerLevel, RenderCache renderCache, StatisticsCollector statistics) {
+        this.firstInnerLevel = firstInnerLevel;
+        this.renderCache = renderCache;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @param level level of a template
+     * @return the reused data model of the given level
+     */
+    LevelModel getLevelModel(int level) {
+        if (level >= levelModels.length) {
+            levelModels = Arrays.copyOf(levelModels, Math.max(level + 1, 2 * levelModels.length));
+        }
+        LevelModel model = levelModels[level];
+        if (model == null) {
+            int inner = level - firstInnerLevel;
+            model = new LevelModel(level, inner, Strings.repeat(XMindToLatexExporter.INDENT, Math.max(inner, 0)));
+            levelModels[level] = model;
+        }
+        return model;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Long running conversion daemon. The daemon listens on a local socket and executes the
+ * arguments sent by a {@link Client} just like {@link Main} does, but in a JVM that keeps
+ * loaded classes, parsed templates and compiled code. Messages and the exit status are
+ * streamed back to the client.<br>
+ * <br>
+ * Requests are served in parallel, on Java 21 or newer each on a virtual thread of its own.
+ * The renders of all requests share a limit of one render per processor.<br>
+ * <br>
+ * Port and access token of a running daemon are published in {@link #DAEMON_FILE}, which is
+ * only readable by its owner. Requests without the token are rejected. Relative file names
+ * are resolved against the working directory of the client.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class Daemon implements Closeable {
+    
+    /** File that contains port and token of the running daemon. */
+    public static final File DAEMON_FILE = new File(System.getProperty("user.home"), ".xmind2latex-daemon");
+    
+    static final String KEY_PORT = "port";
+    static final String KEY_TOKEN = "token";
+    
+    /** Frame that contains the exit status. */
+    static final int FRAME_EXIT = 0;
+    /** Frame that contains standard output. */
+    static final int FRAME_OUT = 1;
+    /** Frame that contains error output. */
+    static final int FRAME_ERR = 2;
+    
+    /** Maximal number of arguments of a request. */
+    private static final int MAX_ARGUMENTS = 4096;
+    
+    /** Time in milliseconds a client may take to send its request. */
+    private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+    
+    /** Maximal number of requests that are served in parallel, if virtual threads are not available. */
+    private static final int MAX_PARALLEL_REQUESTS = 64;
+    
+    private final ServerSocket serverSocket;
+    
+    private final String token;
+    
+    /** Serves the requests, on virtual threads on Java 21 or newer. */
+    private final ExecutorService executor = ConversionExecutors.newExecutor("xmind2latex-daemon", MAX_PARALLEL_REQUESTS);
+    
+    /** Limits the parallel renders of all requests to the number of processors. */
+    private final Semaphore renderPermits = new Semaphore(Runtime.getRuntime().availableProcessors());
+    
+    /**
+     * Creates a daemon that listens on the loopback address.
+     * 
+     * @param port port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public Daemon(int port) throws IOException {
+        checkArgument(port >= 0);
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        this.token = BaseEncoding.base16().encode(random);
+    }
+    
+    /**
+     * Starts a daemon and publishes it in {@link #DAEMON_FILE}.
+     * 
+     * @param args optional port, default is any free port
+     */
+    public static void main(String[] args) {
+        try {
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+            final Daemon daemon = new Daemon(port);
+            daemon.publish(DAEMON_FILE);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                DAEMON_FILE.delete();
+                try {
+                    daemon.close();
+                }
+                catch (IOException e) {
+                    // shutting down anyway
+                }
+            }));
+            System.out.println("xmind2latex daemon listening on port " + daemon.getPort() + ".");
+            daemon.serve();
+        }
+        catch (Exception e) {
+            System.err.println(e.getMessage());
+            System.exit(-1);
+        }
+    }
+    
+    /**
+     * @return the port this daemon listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Writes port and token of this daemon into the given file that is created readable
+     * for its owner only.
+     * 
+     * @param file file to write, must not be null
+     * @throws IOException if the file cannot be written
+     */
+    public void publish(File file) throws IOException {
+        checkNotNull(file);
+        Properties properties = new Properties();
+        properties.setProperty(KEY_PORT, Integer.toString(getPort()));
+        properties.setProperty(KEY_TOKEN, token);
+        
+        Files.deleteIfExists(file.toPath());
+        try {
+            // the token is never readable by others, not even until permissions are changed
+            Files.createFile(file.toPath(), PosixFilePermissions.asFileAttribute(
+                    EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+        }
+        catch (UnsupportedOperationException e) {
+            // no POSIX file system, rely on the permissions of the user home
+            Files.createFile(file.toPath());
+        }
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            properties.store(out, "xmind2latex daemon");
+        }
+    }
+    
+    /**
+     * Accepts and serves requests until this daemon is closed. Requests are served concurrently.
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            }
+            catch (IOException e) {
+                // closed, or a failed connection attempt
+            }
+        }
+    }
+    
+    /**
+     * Serves a single request. A request consists of the token, the working directory of the
+     * client, and the arguments. The response consists of output frames and an exit frame.
+     * Clients that do not send their request in time are disconnected.
+     */
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            s.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (!MessageDigest.isEqual(token.getBytes(Charsets.UTF_8), in.readUTF().getBytes(Charsets.UTF_8))) {
+                return;
+            }
+            String clientDirectory = in.readUTF();
+            int size = in.readInt();
+            if (size < 0 || size > MAX_ARGUMENTS) {
+                return;
+            }
+            String[] args = new String[size];
+            for (int i = 0; i < size; i++) {
+                args[i] = in.readUTF();
+            }
+            
+            PrintStream out = new PrintStream(new FrameOutputStream(data, FRAME_OUT), true, Charsets.UTF_8.name());
+            PrintStream err = new PrintStream(new FrameOutputStream(data, FRAME_ERR), true, Charsets.UTF_8.name());
+            int status;
+            File directory = new File(clientDirectory);
+            if (!directory.isAbsolute() || !directory.isDirectory()) {
+                err.println("The working directory " + clientDirectory + " of the client does not exist.");
+                status = -1;
+            }
+            else {
+                status = Main.run(args, out, err, false, renderPermits, directory);
+            }
+            out.flush();
+            err.flush();
+            synchronized (data) {
+                data.writeByte(FRAME_EXIT);
+                data.writeInt(status);
+                data.flush();
+            }
+        }
+        catch (IOException e) {
+            // the client disconnected
+        }
+    }
+    
+    /**
+     * Stops accepting requests. Running requests are completed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdown();
+    }
+    
+    /**
+     * Sends everything that is written as frame of the given type.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        
+        private final DataOutputStream data;
+        
+        private final int type;
+        
+        private FrameOutputStream(DataOutputStream data, int type) {
+            this.data = data;
+            this.type = type;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            synchronized (data) {
+                data.writeByte(type);
+                data.writeInt(len);
+                data.write(b, off, len);
+                data.flush();
+            }
+        }
+    }
+}
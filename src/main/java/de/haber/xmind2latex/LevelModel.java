@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import com.google.common.collect.ImmutableList;
+
+import freemarker.template.SimpleCollection;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateScalarModel;
+
+/**
+ * Data model of the templates of a single level. The variables "level", "innerLevel" and
+ * "indent" are computed once per level, only "text" is set for each render. A model is reused
+ * for all renders of its level, thus a render allocates nothing but the rendered text. Not
+ * thread-safe.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class LevelModel implements TemplateHashModelEx {
+
+    static final String TEXT = "text";
+
+    static final String LEVEL = "level";
+
+    static final String INNER_LEVEL = "innerLevel";
+
+    static final String INDENT = "indent";
+
+    private static final ImmutableList<String> KEYS = ImmutableList.of(TEXT, LEVEL, INNER_LEVEL, INDENT);
+
+    private final String level;
+
+    private final String innerLevel;
+
+    private final String indent;
+
+    private final TemplateModel levelModel;
+
+    private final TemplateModel innerLevelModel;
+
+    private final TemplateModel indentModel;
+
+    /** text of the running render */
+    private String text = "";
+
+    private final TemplateScalarModel textModel = new TemplateScalarModel() {
+
+        @Override
+        public String getAsString() {
+            return text;
+        }
+    };
+
+    /**
+     * @param level the level
+     * @param innerLevel level relative to the first level without level template
+     * @param indent indention of the inner level
+     */
+    LevelModel(int level, int innerLevel, String indent) {
+        this.level = Integer.toString(level);
+        this.innerLevel = Integer.toString(innerLevel);
+        this.indent = indent;
+        levelModel = new SimpleScalar(this.level);
+        innerLevelModel = new SimpleScalar(this.innerLevel);
+        indentModel = new SimpleScalar(indent);
+    }
+
+    /**
+     * @param text text of the next render
+     * @return this model
+     */
+    LevelModel withText(String text) {
+        this.text = text;
+        return this;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    String getLevel() {
+        return level;
+    }
+
+    String getInnerLevel() {
+        return innerLevel;
+    }
+
+    String getIndent() {
+        return indent;
+    }
+
+    @Override
+    public TemplateModel get(String key) {
+        if (TEXT.equals(key)) {
+            return textModel;
+        }
+        if (LEVEL.equals(key)) {
+            return levelModel;
+        }
+        if (INNER_LEVEL.equals(key)) {
+            return innerLevelModel;
+        }
+        if (INDENT.equals(key)) {
+            return indentModel;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return KEYS.size();
+    }
+
+    @Override
+    public TemplateCollectionModel keys() {
+        return new SimpleCollection(KEYS);
+    }
+
+    @Override
+    public TemplateCollectionModel values() {
+        return new SimpleCollection(ImmutableList.of(textModel, levelModel, innerLevelModel, indentModel));
+    }
+}
@@ -19,8 +19,16 @@
  */
 package de.haber.xmind2latex;
 
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
 import org.apache.commons.cli.ParseException;
 
+import de.haber.xmind2latex.XMindToLatexExporter.Builder;
+import de.haber.xmind2latex.cli.BatchParameters;
 import de.haber.xmind2latex.cli.CliParameters;
 
 /**
@@ -45,25 +53,99 @@ public class Main {
 	}
     
 	/**
-	 * Executes a {@link XMindToLatexExporter} with the given arguments.
+	 * Executes a {@link XMindToLatexExporter} with the given arguments. If several input
+	 * files are given, these are converted by a {@link BatchConverter} and a summary is
+	 * printed. The exit code is non-zero, if any conversion failed. In watch mode, the
+	 * input files are converted again by a {@link Watcher} whenever they change.
 	 * 
 	 * @param args configuration arguments.
 	 */
     public static void main(String[] args) {
+        int status = run(args, System.out, System.err, true);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+    
+    /**
+     * Executes a {@link XMindToLatexExporter} with the given arguments, see {@link #main(String[])}.
+     * 
+     * @param args configuration arguments
+     * @param out receives messages
+     * @param err receives error messages
+     * @param watchSupported false, if the watch mode is to be rejected
+     * @return the exit status, 0 on success
+     * 
+     * @since 1.3.0
+     */
+    static int run(String[] args, PrintStream out, PrintStream err, boolean watchSupported) {
+        return run(args, out, err, watchSupported, null, null);
+    }
+    
+    /**
+     * Executes a {@link XMindToLatexExporter} with the given arguments, see {@link #main(String[])}.
+     * 
+     * @param args configuration arguments
+     * @param out receives messages
+     * @param err receives error messages
+     * @param watchSupported false, if the watch mode is to be rejected
+     * @param renderPermits limits the parallel renders, e.g., of all requests of a {@link Daemon},
+     * null if the renders are only limited by the number of jobs
+     * @param directory directory relative files are resolved against, e.g., the working directory
+     * of a {@link Client}, null for the working directory
+     * @return the exit status, 0 on success
+     * 
+     * @since 1.3.0
+     */
+    static int run(String[] args, PrintStream out, PrintStream err, boolean watchSupported, Semaphore renderPermits, File directory) {
         try {
-            XMindToLatexExporter tool = CliParameters.build(args);
-            if (tool != null) {
-                tool.convert();                
+            BatchParameters batch = CliParameters.buildBatch(args, out, directory);
+            if (batch == null) {
+                return 0;
+            }
+            if (batch.isWatch() && !watchSupported) {
+                err.println("Parameter -" + CliParameters.WATCH + " is not supported here.");
+                return -1;
+            }
+            List<Builder> builders = batch.getBuilders();
+            if (builders.size() == 1 && !batch.isWatch()) {
+                try (XMindToLatexExporter tool = builders.get(0).build()) {
+                    ConversionResult result = tool.convert(renderPermits);
+                    if (result.hasStatistics()) {
+                        result.print(out);
+                    }
+                }
+                return 0;
+            }
+            BatchConverter.Result result = new BatchConverter(batch.getJobs(),
+                    ConversionExecutors.isVirtualThreadsAvailable(), renderPermits).convert(builders);
+            for (ConversionResult converted : result.getResults()) {
+                if (converted.hasStatistics()) {
+                    converted.print(out);
+                }
+            }
+            for (Map.Entry<File, Throwable> failure : result.getFailures().entrySet()) {
+                err.println(failure.getKey() + ": " + failure.getValue().getMessage());
+            }
+            out.println(result.getConverted() + " of " + builders.size() + " input files converted, " 
+                    + result.getFailures().size() + " failed.");
+            if (batch.isWatch()) {
+                try (Watcher watcher = new Watcher(builders, Watcher.DEFAULT_DEBOUNCE_MILLIS, out, err)) {
+                    out.println("Watching " + builders.size() + " input files for changes.");
+                    watcher.watch();
+                }
+                return 0;
             }
+            return result.isSuccessful() ? 0 : -1;
         }
         catch (ParseException e) {
-            System.err.println(e.getMessage());
-            CliParameters.showHelp();
-            System.exit(-1);
+            err.println(e.getMessage());
+            CliParameters.showHelp(out);
+            return -1;
         } 
         catch (Exception e) {
-            System.err.println(e.getMessage());
-            System.exit(-1);
+            err.println(e.getMessage());
+            return -1;
         }
     }
 }
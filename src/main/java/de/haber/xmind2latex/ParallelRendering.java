@@ -0,0 +1,186 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinTask;
+
+import de.haber.xmind2latex.ConversionResult.Phase;
+
+/**
+ * Keeps the output of a conversion whose subtrees are rendered in parallel in document order.
+ * Content that is rendered on the converting thread is collected in {@link #getSerialWriter()}
+ * until the next subtree is added. Fragments are written to the target as soon as all
+ * preceding fragments have been written, thus the output is identical to the output of a
+ * serial conversion. Only used by the converting thread.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class ParallelRendering {
+
+    /**
+     * Either serially rendered content or a subtree that is rendered by a task.
+     */
+    private static final class Fragment {
+
+        private final String content;
+
+        private final ForkJoinTask<String> task;
+
+        /** statistics of the task, null if no statistics are collected */
+        private final StatisticsCollector statistics;
+
+        private Fragment(String content, ForkJoinTask<String> task, StatisticsCollector statistics) {
+            this.content = content;
+            this.task = task;
+            this.statistics = statistics;
+        }
+    }
+
+    private final Writer out;
+
+    /** statistics of the conversion, null if no statistics are collected */
+    private final StatisticsCollector statistics;
+
+    private final StringWriter serial = new StringWriter();
+
+    private final Deque<Fragment> fragments = new ArrayDeque<Fragment>();
+
+    /**
+     * @param out target of the conversion
+     * @param statistics statistics of the conversion, may be null
+     */
+    ParallelRendering(Writer out, StatisticsCollector statistics) {
+        this.out = out;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the writer that receives content which is rendered on the converting thread
+     */
+    Writer getSerialWriter() {
+        return serial;
+    }
+
+    /**
+     * Adds the task of a subtree that follows the serially rendered content. Completed
+     * fragments are written.
+     *
+     * @param task running task that renders the subtree
+     * @param taskStatistics statistics of the task, merged into the conversion when the fragment is written, may be null
+     * @throws IOException if the target cannot be written
+     */
+    void add(ForkJoinTask<String> task, StatisticsCollector taskStatistics) throws IOException {
+        addSerial();
+        fragments.add(new Fragment(null, task, taskStatistics));
+        write(false);
+    }
+
+    /**
+     * Waits for all subtrees and writes the remaining fragments.
+     *
+     * @throws IOException if the target cannot be written
+     */
+    void finish() throws IOException {
+        addSerial();
+        write(true);
+    }
+
+    /**
+     * Cancels the subtrees that have not been written, e.g., after a failed conversion.
+     */
+    void cancel() {
+        for (Fragment fragment : fragments) {
+            if (fragment.task != null) {
+                fragment.task.cancel(false);
+            }
+        }
+        fragments.clear();
+    }
+
+    private void addSerial() {
+        if (serial.getBuffer().length() > 0) {
+            fragments.add(new Fragment(serial.toString(), null, null));
+            serial.getBuffer().setLength(0);
+        }
+    }
+
+    /**
+     * @param wait true, if running subtrees are awaited, otherwise writing stops at the first running subtree
+     */
+    private void write(boolean wait) throws IOException {
+        while (!fragments.isEmpty()) {
+            Fragment fragment = fragments.peek();
+            if (fragment.task == null) {
+                out.write(fragment.content);
+            }
+            else if (fragment.task.isDone() || wait) {
+                out.write(join(fragment));
+            }
+            else {
+                return;
+            }
+            fragments.remove();
+        }
+    }
+
+    /**
+     * @return the rendered subtree, waiting for it is charged to {@link Phase#RENDER}
+     */
+    private String join(Fragment fragment) throws IOException {
+        if (statistics == null) {
+            return join(fragment.task);
+        }
+        Phase previous = statistics.enter(Phase.RENDER);
+        String rendered;
+        try {
+            rendered = join(fragment.task);
+        }
+        finally {
+            statistics.enter(previous);
+        }
+        statistics.merge(fragment.statistics);
+        return rendered;
+    }
+
+    /**
+     * @return the result of the given task
+     * @throws IOException if the task failed to write its result
+     */
+    private static String join(ForkJoinTask<String> task) throws IOException {
+        try {
+            return task.join();
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event of parsing the XMind content of a conversion. Templates are rendered
+ * while the content is parsed, their {@link TemplateRenderEvent}s are nested in this event.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+@Name(ParseEvent.NAME)
+@Label("Parse")
+@Category("XMind to Latex")
+@Description("Parsing the XMind content and rendering its topics")
+final class ParseEvent extends Event {
+
+    static final String NAME = "de.haber.xmind2latex.Parse";
+
+    @Label("Input")
+    String input;
+
+    @Label("Parser")
+    String parser;
+}
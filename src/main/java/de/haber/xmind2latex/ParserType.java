@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+/**
+ * XML parsers that may be used by the {@link XMindToLatexExporter} to read the XMind content.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public enum ParserType {
+
+    /**
+     * Streaming parser based on {@link javax.xml.stream.XMLStreamReader}. Titles are rendered
+     * while the content is read. This is the default parser.
+     */
+    STAX,
+
+    /**
+     * Builds a complete {@link org.w3c.dom.Document} of the content before it is converted.
+     */
+    DOM
+}
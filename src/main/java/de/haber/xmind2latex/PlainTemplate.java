@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * Renders a template that consists of constant text and plain interpolations of the variables
+ * "text", "level", "innerLevel" and "indent" only, e.g., "\chapter{${text}}", without FreeMarker.
+ * The constant parts and the interpolations are derived once from the parsed template, and a
+ * render appends them to the output. Templates with directives, built-ins or expressions are
+ * rendered by FreeMarker. Immutable and thread-safe.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class PlainTemplate {
+
+    /** Variables of the template data model. */
+    private static final List<String> VARIABLES = ImmutableList.of(
+            LevelModel.TEXT, LevelModel.LEVEL, LevelModel.INNER_LEVEL, LevelModel.INDENT);
+
+    private static final Pattern COMMENT = Pattern.compile("<#--.*?-->", Pattern.DOTALL);
+
+    private static final Pattern INTERPOLATION = Pattern.compile("\\$\\{([^}]*)\\}");
+
+    /** Starts of FreeMarker tags and numerical interpolations in both syntaxes. */
+    private static final Pattern TAG = Pattern.compile("</?[#@]|\\[/?[#@]|#\\{|\\$\\{");
+
+    /** Constant parts, one more than interpolations. */
+    private final String[] constants;
+
+    /** Indices of the interpolated variables in {@link #VARIABLES}. */
+    private final int[] variables;
+
+    private PlainTemplate(String[] constants, int[] variables) {
+        this.constants = constants;
+        this.variables = variables;
+    }
+
+    /**
+     * @param template a parsed template
+     * @return a plain renderer of the given template that produces the same output as the
+     * template, or null, if the template is no plain template.
+     */
+    static PlainTemplate compile(Template template) {
+        // the canonical form is the source after white-space stripping
+        String source = COMMENT.matcher(template.toString()).replaceAll("");
+        List<String> constants = Lists.newArrayList();
+        List<Integer> variables = Lists.newArrayList();
+        Matcher interpolation = INTERPOLATION.matcher(source);
+        int start = 0;
+        while (interpolation.find()) {
+            int variable = VARIABLES.indexOf(interpolation.group(1));
+            if (variable == -1) {
+                return null;
+            }
+            constants.add(source.substring(start, interpolation.start()));
+            variables.add(variable);
+            start = interpolation.end();
+        }
+        constants.add(source.substring(start));
+        for (String constant : constants) {
+            if (TAG.matcher(constant).find()) {
+                return null;
+            }
+        }
+        int[] indices = new int[variables.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = variables.get(i);
+        }
+        PlainTemplate plain = new PlainTemplate(constants.toArray(new String[constants.size()]), indices);
+        
+        // the plain rendering has to be identical to the rendering of FreeMarker
+        if (!plain.matches(template, new LevelModel(1, 0, "").withText("T"))
+                || !plain.matches(template, new LevelModel(12, -3, "    ").withText("a <b> & \"c\"\n$ {d}"))) {
+            return null;
+        }
+        return plain;
+    }
+
+    /**
+     * @return true, if this template and the given template render the given model identically
+     */
+    private boolean matches(Template template, LevelModel model) {
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        try {
+            template.process(model, expected);
+            render(actual, model);
+        }
+        catch (TemplateException | IOException e) {
+            return false;
+        }
+        return expected.toString().equals(actual.toString());
+    }
+
+    /**
+     * Appends the constant parts and the values of the variables of the given model to the given writer.
+     *
+     * @param out receives the rendered template
+     * @param model data model of the render
+     * @throws IOException if the rendered template cannot be written
+     */
+    void render(Writer out, LevelModel model) throws IOException {
+        out.write(constants[0]);
+        for (int i = 0; i < variables.length; i++) {
+            switch (variables[i]) {
+                case 0:
+                    out.write(model.getText());
+                    break;
+                case 1:
+                    out.write(model.getLevel());
+                    break;
+                case 2:
+                    out.write(model.getInnerLevel());
+                    break;
+                default:
+                    out.write(model.getIndent());
+                    break;
+            }
+            out.write(constants[i + 1]);
+        }
+    }
+}
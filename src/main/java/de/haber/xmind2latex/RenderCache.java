@@ -0,0 +1,281 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Persistent cache of rendered topic texts. Every topic of an XMind map carries an id and
+ * a timestamp that changes whenever the topic is modified. The rendered texts of a topic,
+ * e.g., its title, are stored for the id, the timestamp and the level of the topic. Texts
+ * of child topics are stored with the child topics, thus an unchanged subtree is not
+ * rendered again, even if a sibling or a parent topic changed.<br>
+ * <br>
+ * The cache is only valid for the templates and the maximal template level it has been
+ * created with. These are identified by a fingerprint that is stored with the cache, a cache
+ * with another fingerprint is discarded. Entries of topics that are not part of the
+ * converted map anymore are removed when the cache is saved.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class RenderCache {
+    
+    /** Version of the cache file format. */
+    private static final int FORMAT_VERSION = 1;
+    
+    private final File file;
+    
+    private final String fingerprint;
+    
+    /** Entries loaded from the cache file. */
+    private final Map<String, List<String>> previous;
+    
+    /** Entries of the current conversion, these are saved. */
+    private final Map<String, List<String>> current = Maps.newLinkedHashMap();
+    
+    /** Keys of topics that occurred more than once in the current conversion. */
+    private final Set<String> ambiguous = Sets.newHashSet();
+    
+    /** Rendered environments by template and level, these are not saved. */
+    private final Map<String, String> environments = Maps.newHashMap();
+    
+    /** True, if an entry of the current conversion differs from the loaded entries. */
+    private boolean modified = false;
+    
+    /** Currently open topics. */
+    private final Deque<TopicEntry> topics = new ArrayDeque<TopicEntry>();
+    
+    private RenderCache(File file, String fingerprint, Map<String, List<String>> previous) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.previous = previous;
+    }
+    
+    /**
+     * Loads the cache that is stored in the given file. If the file does not exist, cannot
+     * be read, or has been created for another fingerprint, the returned cache is empty.
+     * 
+     * @param file cache file, must not be null
+     * @param fingerprint fingerprint of the used templates and the template level configuration, must not be null
+     * @return the loaded cache
+     */
+    static RenderCache load(File file, String fingerprint) {
+        checkNotNull(file);
+        checkNotNull(fingerprint);
+        Map<String, List<String>> entries = Maps.newHashMap();
+        if (file.isFile()) {
+            // no string of a valid cache is longer than the file
+            long limit = file.length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() == FORMAT_VERSION && fingerprint.equals(readString(in, limit))) {
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        String key = readString(in, limit);
+                        int texts = in.readInt();
+                        List<String> rendered = Lists.newArrayListWithCapacity(Math.min(texts, 16));
+                        for (int j = 0; j < texts; j++) {
+                            rendered.add(readString(in, limit));
+                        }
+                        entries.put(key, rendered);
+                    }
+                }
+            }
+            catch (IOException e) {
+                // an unreadable cache is rebuilt
+                entries.clear();
+            }
+        }
+        return new RenderCache(file, fingerprint, entries);
+    }
+    
+    /**
+     * Opens a topic. Texts that are added afterwards belong to this topic until it is
+     * closed by {@link #endTopic()}.
+     * 
+     * @param id id of the topic, may be null
+     * @param timestamp timestamp of the topic, may be null
+     * @param level level of the topic
+     */
+    void beginTopic(String id, String timestamp, int level) {
+        String key = null;
+        if (id != null && timestamp != null) {
+            key = id + '@' + timestamp + '@' + level;
+        }
+        topics.push(new TopicEntry(key, key != null ? previous.get(key) : null));
+    }
+    
+    /**
+     * @return the cached rendering of the next text of the current topic, or null, if the
+     * text has to be rendered.
+     */
+    String nextText() {
+        TopicEntry topic = topics.peek();
+        if (topic == null || topic.cached == null || topic.rendered.size() >= topic.cached.size()) {
+            return null;
+        }
+        return topic.cached.get(topic.rendered.size());
+    }
+    
+    /**
+     * Adds the rendered next text to the current topic.
+     * 
+     * @param rendered the rendered text, either rendered or returned by {@link #nextText()}
+     */
+    void addText(String rendered) {
+        TopicEntry topic = topics.peek();
+        if (topic != null && topic.key != null) {
+            if (topic.cached == null || topic.rendered.size() >= topic.cached.size()) {
+                modified = true;
+            }
+            topic.rendered.add(rendered);
+        }
+    }
+    
+    /**
+     * Closes the current topic and stores its rendered texts. Topics whose id occurs more
+     * than once on the same level are not stored, since they cannot be told apart.
+     */
+    void endTopic() {
+        checkState(!topics.isEmpty(), "No open topic.");
+        TopicEntry topic = topics.pop();
+        if (topic.key != null && (topic.cached == null || topic.cached.size() != topic.rendered.size())) {
+            modified = true;
+        }
+        if (topic.key != null && !ambiguous.contains(topic.key)) {
+            if (current.put(topic.key, topic.rendered) != null) {
+                current.remove(topic.key);
+                ambiguous.add(topic.key);
+            }
+        }
+    }
+    
+    /**
+     * @param template environment template
+     * @param level level of the environment
+     * @return the rendered environment, or null, if it has not been rendered in this conversion
+     */
+    String getEnvironment(String template, int level) {
+        return environments.get(template + '@' + level);
+    }
+    
+    /**
+     * @param template environment template
+     * @param level level of the environment
+     * @param rendered the rendered environment
+     */
+    void putEnvironment(String template, int level, String rendered) {
+        environments.put(template + '@' + level, rendered);
+    }
+    
+    /**
+     * Saves all topics of the current conversion into the cache file. The file is replaced
+     * as a whole, a concurrently running conversion never reads a partially written cache.
+     * The file is not written, if all topics have been taken from the loaded cache.
+     * 
+     * @throws IOException if the cache file cannot be written
+     */
+    void save() throws IOException {
+        if (!modified && current.size() == previous.size() && file.isFile()) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            writeString(out, fingerprint);
+            out.writeInt(current.size());
+            for (Map.Entry<String, List<String>> entry : current.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (String rendered : entry.getValue()) {
+                    writeString(out, rendered);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * @return the number of topics that have been converted
+     */
+    int size() {
+        return current.size();
+    }
+    
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > limit) {
+            throw new IOException("Invalid render cache.");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    /**
+     * A topic of the current conversion.
+     */
+    private static final class TopicEntry {
+        
+        private final String key;
+        
+        private final List<String> cached;
+        
+        private final List<String> rendered = Lists.newArrayList();
+        
+        private TopicEntry(String key, List<String> cached) {
+            this.key = key;
+            this.cached = cached;
+        }
+    }
+}
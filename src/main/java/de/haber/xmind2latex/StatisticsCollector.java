@@ -0,0 +1,306 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Maps;
+
+import de.haber.xmind2latex.ConversionResult.Phase;
+import de.haber.xmind2latex.ConversionResult.TemplateStatistics;
+
+/**
+ * Collects the statistics of a single conversion. The elapsed time is always charged to the
+ * current {@link Phase}, which is {@link Phase#PARSE} unless the XMind content is read, a
+ * template is rendered or the target file is written. Not thread-safe, a conversion runs on
+ * a single thread.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class StatisticsCollector {
+
+    private final long[] phaseTimes = new long[Phase.values().length];
+
+    private Phase current = Phase.PARSE;
+
+    /** start of the current phase */
+    private long since;
+
+    /** phase that is continued after the running render */
+    private Phase beforeRender;
+
+    /** render time before the running render */
+    private long renderTime;
+
+    private final Map<Integer, Integer> topicsPerLevel = Maps.newHashMap();
+
+    /** renders and time by template name */
+    private final Map<String, long[]> templates = Maps.newHashMap();
+
+    /** minimal time between two samples of the heap usage in nanoseconds */
+    private static final long HEAP_SAMPLE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** samples the heap usage, null if the heap usage is not collected */
+    private final MemoryMXBean memory;
+
+    /** time of the last sample of the heap usage */
+    private long heapSampled;
+
+    private long peakHeapUsed = -1;
+
+    /**
+     * Starts the collection, the time until {@link #finish()} is charged to the phases.
+     */
+    StatisticsCollector() {
+        this(true);
+    }
+
+    /**
+     * The heap usage is sampled at the phase boundaries, at most once per
+     * {@link #HEAP_SAMPLE_INTERVAL}. The peak heap usage is the highest sample. The JVM wide
+     * peaks of the memory pools are left untouched, they would combine the peaks of
+     * different times and be shared with parallel conversions.
+     *
+     * @param heap true, if the peak heap usage is collected
+     */
+    private StatisticsCollector(boolean heap) {
+        since = System.nanoTime();
+        memory = heap ? ManagementFactory.getMemoryMXBean() : null;
+        if (memory != null) {
+            sampleHeap(since);
+        }
+    }
+
+    /**
+     * Starts the collection of a part of a conversion that runs on another thread, e.g., a
+     * subtree that is rendered in parallel. The heap usage is left to the conversion itself.
+     *
+     * @return a new collector that is merged into the conversion by {@link #merge(StatisticsCollector)}
+     */
+    static StatisticsCollector forPart() {
+        return new StatisticsCollector(false);
+    }
+
+    /**
+     * Adds the topics and template renders of the given finished part to this collection. The
+     * phase times of the part overlap with the phases of the conversion and are not added.
+     *
+     * @param part statistics of a part of this conversion
+     */
+    void merge(StatisticsCollector part) {
+        for (Map.Entry<Integer, Integer> level : part.topicsPerLevel.entrySet()) {
+            Integer count = topicsPerLevel.get(level.getKey());
+            topicsPerLevel.put(level.getKey(), count == null ? level.getValue() : count + level.getValue());
+        }
+        for (Map.Entry<String, long[]> template : part.templates.entrySet()) {
+            long[] statistics = templates.get(template.getKey());
+            if (statistics == null) {
+                statistics = new long[2];
+                templates.put(template.getKey(), statistics);
+            }
+            statistics[0] += template.getValue()[0];
+            statistics[1] += template.getValue()[1];
+        }
+    }
+
+    /**
+     * Charges the elapsed time to the current phase and continues with the given phase.
+     *
+     * @param phase the new current phase
+     * @return the previous phase
+     */
+    Phase enter(Phase phase) {
+        long now = System.nanoTime();
+        if (memory != null && now - heapSampled >= HEAP_SAMPLE_INTERVAL) {
+            sampleHeap(now);
+        }
+        phaseTimes[current.ordinal()] += now - since;
+        since = now;
+        Phase previous = current;
+        current = phase;
+        return previous;
+    }
+
+    /**
+     * Enters the {@link Phase#RENDER}. Renders are not nested.
+     */
+    void beginRender() {
+        beforeRender = enter(Phase.RENDER);
+        renderTime = phaseTimes[Phase.RENDER.ordinal()];
+    }
+
+    /**
+     * Leaves the {@link Phase#RENDER} and charges its time to the given template.
+     *
+     * @param template name of the rendered template
+     */
+    void endRender(String template) {
+        enter(beforeRender);
+        long[] statistics = templates.get(template);
+        if (statistics == null) {
+            statistics = new long[2];
+            templates.put(template, statistics);
+        }
+        statistics[0]++;
+        statistics[1] += phaseTimes[Phase.RENDER.ordinal()] - renderTime;
+    }
+
+    /**
+     * Counts a topic of the given level.
+     *
+     * @param level level of the topic
+     */
+    void topic(int level) {
+        Integer count = topicsPerLevel.get(level);
+        topicsPerLevel.put(level, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Stops the collection.
+     */
+    void finish() {
+        enter(current);
+        if (memory != null) {
+            sampleHeap(since);
+        }
+    }
+
+    /**
+     * Samples the heap usage.
+     *
+     * @param now current time
+     */
+    private void sampleHeap(long now) {
+        heapSampled = now;
+        peakHeapUsed = Math.max(peakHeapUsed, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * @param in stream of the XMind content
+     * @return a stream that charges reading the given stream to {@link Phase#UNZIP}
+     */
+    InputStream timeReads(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public int read() throws IOException {
+                Phase previous = enter(Phase.UNZIP);
+                try {
+                    return super.read();
+                }
+                finally {
+                    enter(previous);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Phase previous = enter(Phase.UNZIP);
+                try {
+                    return super.read(b, off, len);
+                }
+                finally {
+                    enter(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param out stream of the target file
+     * @return a stream that charges writing to the given stream to {@link Phase#WRITE}
+     */
+    OutputStream timeWrites(OutputStream out) {
+        return new FilterOutputStream(out) {
+
+            @Override
+            public void write(int b) throws IOException {
+                Phase previous = enter(Phase.WRITE);
+                try {
+                    out.write(b);
+                }
+                finally {
+                    enter(previous);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                Phase previous = enter(Phase.WRITE);
+                try {
+                    out.write(b, off, len);
+                }
+                finally {
+                    enter(previous);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                Phase previous = enter(Phase.WRITE);
+                try {
+                    super.close();
+                }
+                finally {
+                    enter(previous);
+                }
+            }
+        };
+    }
+
+    Map<Phase, Long> getPhaseTimes() {
+        Map<Phase, Long> result = new EnumMap<Phase, Long>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            result.put(phase, phaseTimes[phase.ordinal()]);
+        }
+        return result;
+    }
+
+    Map<Integer, Integer> getTopicsPerLevel() {
+        return topicsPerLevel;
+    }
+
+    Map<String, TemplateStatistics> getTemplates() {
+        Map<String, TemplateStatistics> result = Maps.newHashMap();
+        for (Map.Entry<String, long[]> template : templates.entrySet()) {
+            result.put(template.getKey(), new TemplateStatistics((int) template.getValue()[0], template.getValue()[1]));
+        }
+        return result;
+    }
+
+    long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+}
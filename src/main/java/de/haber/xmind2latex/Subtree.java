@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Recorded topic and text events of a topic and its subtree, which are rendered later on
+ * another thread. Only the parsing thread reads the XMind content, the recording contains
+ * everything that is needed to render the subtree.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class Subtree {
+
+    /**
+     * Receives the events of a recorded subtree in document order.
+     */
+    interface Visitor {
+
+        /**
+         * @param id id of the topic, may be null
+         * @param timestamp timestamp of the topic, may be null
+         */
+        void beginTopic(String id, String timestamp) throws IOException;
+
+        /**
+         * @param text cleaned text
+         */
+        void text(String text) throws IOException;
+
+        void endTopic() throws IOException;
+    }
+
+    private enum Event {
+        BEGIN, TEXT, END
+    }
+
+    private final List<Event> events = Lists.newArrayList();
+
+    /** id and timestamp of each begin event, text of each text event */
+    private final List<String> values = Lists.newArrayList();
+
+    /** number of open topics */
+    private int depth = 0;
+
+    /**
+     * @param id id of the topic, may be null
+     * @param timestamp timestamp of the topic, may be null
+     */
+    void beginTopic(String id, String timestamp) {
+        events.add(Event.BEGIN);
+        values.add(id);
+        values.add(timestamp);
+        depth++;
+    }
+
+    /**
+     * @param text cleaned text of the current topic
+     */
+    void text(String text) {
+        events.add(Event.TEXT);
+        values.add(text);
+    }
+
+    /**
+     * @return true, if the topic of this subtree has been closed and the subtree is complete
+     */
+    boolean endTopic() {
+        events.add(Event.END);
+        return --depth == 0;
+    }
+
+    /**
+     * Replays the recorded events.
+     *
+     * @param visitor receives the events in document order
+     * @throws IOException if the visitor fails
+     */
+    void accept(Visitor visitor) throws IOException {
+        int value = 0;
+        for (Event event : events) {
+            switch (event) {
+                case BEGIN:
+                    visitor.beginTopic(values.get(value), values.get(value + 1));
+                    value += 2;
+                    break;
+                case TEXT:
+                    visitor.text(values.get(value++));
+                    break;
+                default:
+                    visitor.endTopic();
+            }
+        }
+    }
+}
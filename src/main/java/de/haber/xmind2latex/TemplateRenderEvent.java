@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event of a single template render. Maps contain thousands of topics, thus
+ * only renders that exceed the threshold, by default 1 ms, are recorded. The threshold may be
+ * changed in the recording settings, e.g., "de.haber.xmind2latex.TemplateRender#threshold=0 ms".
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+@Name(TemplateRenderEvent.NAME)
+@Label("Template Render")
+@Category("XMind to Latex")
+@Description("Rendering of a single template")
+@Threshold("1 ms")
+final class TemplateRenderEvent extends Event {
+
+    static final String NAME = "de.haber.xmind2latex.TemplateRender";
+
+    @Label("Template")
+    String template;
+
+    @Label("Level")
+    int level;
+}
@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.haber.xmind2latex.XMindToLatexExporter.Builder;
+import de.haber.xmind2latex.help.ConfigurationException;
+
+/**
+ * Watches the directories of the given input files and converts an input file again
+ * whenever it changes. XMind writes files in several steps, thus all events of an input
+ * file are debounced and the file is converted once, when no further event arrived for
+ * the debounce delay. Conversions run one after another on a single background thread.
+ * The exporter of each input file is built once, a change only runs the conversion.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class Watcher implements Closeable {
+    
+    /** Default delay in milliseconds after the last change event before a file is converted. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+    
+    /** Exporters by absolute and normalized input path. */
+    private final Map<Path, XMindToLatexExporter> inputs = Maps.newHashMap();
+    
+    private final long debounceMillis;
+    
+    private final WatchService watchService;
+    
+    private final ScheduledExecutorService scheduler;
+    
+    private final PrintStream out;
+    
+    private final PrintStream err;
+    
+    /** Scheduled conversions by input path, only accessed by the watching thread. */
+    private final Map<Path, ScheduledFuture<?>> pending = Maps.newHashMap();
+    
+    /**
+     * Creates a new watcher that reports to the standard streams, see
+     * {@link #Watcher(List, long, PrintStream, PrintStream)}.
+     * 
+     * @param builders configured builders of the watched input files, must not be null
+     * @param debounceMillis delay after the last change event before a file is converted, has to be >= 0
+     * @throws IOException if a directory cannot be watched
+     * @throws ConfigurationException if a builder is not valid
+     */
+    public Watcher(List<Builder> builders, long debounceMillis) throws IOException {
+        this(builders, debounceMillis, System.out, System.err);
+    }
+    
+    /**
+     * Creates a new watcher, builds the exporters of all input files and registers their
+     * directories. Targets are overwritten on every change, thus the builders have to enable
+     * {@link Builder#overwritesExistingFiles(boolean)}.
+     * 
+     * @param builders configured builders of the watched input files that overwrite existing files, must not be null
+     * @param debounceMillis delay after the last change event before a file is converted, has to be >= 0
+     * @param out receives a message for each conversion, must not be null
+     * @param err receives a message for each failed conversion, must not be null
+     * @throws IOException if a directory cannot be watched
+     * @throws ConfigurationException if a builder is not valid
+     */
+    public Watcher(List<Builder> builders, long debounceMillis, PrintStream out, PrintStream err) throws IOException {
+        checkNotNull(builders);
+        checkArgument(debounceMillis >= 0);
+        this.debounceMillis = debounceMillis;
+        this.out = checkNotNull(out);
+        this.err = checkNotNull(err);
+        
+        Set<Path> directories = Sets.newHashSet();
+        try {
+            for (Builder builder : builders) {
+                Path input = builder.getInputFile().toPath().toAbsolutePath().normalize();
+                XMindToLatexExporter exporter = builder.build();
+                inputs.put(input, exporter);
+                // existing files that have not been written by xmind2latex must not be overwritten silently
+                checkArgument(exporter.isOverwriteExistingFile(), "Watched input files have to overwrite existing files.");
+                directories.add(input.getParent());
+            }
+        }
+        catch (RuntimeException e) {
+            try {
+                closeExporters();
+            }
+            catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path directory : directories) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+        }
+        catch (IOException e) {
+            watchService.close();
+            closeExporters();
+            throw e;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("xmind2latex-watch-%d").setDaemon(true).build());
+        // pending conversions are discarded on close
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler = executor;
+    }
+    
+    /**
+     * Processes change events until this watcher is closed.
+     * 
+     * @throws InterruptedException if the calling thread is interrupted while waiting for events
+     */
+    public void watch() throws InterruptedException {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // events have been lost, convert all inputs of the directory
+                    for (Path input : inputs.keySet()) {
+                        if (input.getParent().equals(directory)) {
+                            schedule(input);
+                        }
+                    }
+                }
+                else {
+                    Path changed = directory.resolve((Path) event.context());
+                    if (inputs.containsKey(changed)) {
+                        schedule(changed);
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+    
+    /**
+     * (Re-)schedules the conversion of the given input after the debounce delay.
+     */
+    private void schedule(final Path input) {
+        ScheduledFuture<?> previous = pending.get(input);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        pending.put(input, scheduler.schedule(() -> convert(input), debounceMillis, TimeUnit.MILLISECONDS));
+    }
+    
+    private void convert(Path input) {
+        long start = System.nanoTime();
+        XMindToLatexExporter exporter = inputs.get(input);
+        try {
+            ConversionResult result = exporter.convert();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            out.println("Converted " + input + " to " + exporter.getTargetFile() + " in " + millis + " ms.");
+            if (result.hasStatistics()) {
+                result.print(out);
+            }
+        }
+        catch (Exception e) {
+            err.println(input + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stops watching. Pending conversions are discarded, a running conversion is completed
+     * before the exporters are closed.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        watchService.close();
+        try {
+            scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeExporters();
+    }
+    
+    /**
+     * Closes the exporters of all input files.
+     * 
+     * @throws IOException if an exporter cannot be closed
+     */
+    private void closeExporters() throws IOException {
+        IOException first = null;
+        for (XMindToLatexExporter exporter : inputs.values()) {
+            try {
+                exporter.close();
+            }
+            catch (IOException e) {
+                if (first == null) {
+                    first = e;
+                }
+                else {
+                    first.addSuppressed(e);
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Opens the XMind content of an input file. For XMind files, only the content.xml entry is
+ * located using the central directory of the archive and inflated. All other entries, e.g.,
+ * attachments, are neither read nor inflated.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class XMindContentReader {
+
+    /** Name of the entry that contains the mind map in XMind files. */
+    public static final String CONTENT_XML = "content.xml";
+
+    /** File extension of XMind files. */
+    public static final String XMIND_FILE_EXTENSION = ".xmind";
+
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private XMindContentReader() {
+
+    }
+
+    /**
+     * @param source either an XMind file or an XML file, must not be null and has to exist
+     * @return a stream of the XMind content. Closing the stream releases all resources.
+     *
+     * @throws FileNotFoundException if the given file does not exist
+     * @throws ZipException if the given XMind file is not a zip archive or does not contain
+     * a content.xml
+     * @throws IOException if the given file cannot be read
+     */
+    public static InputStream open(File source) throws IOException {
+        checkNotNull(source);
+        if (!source.exists()) {
+            throw new FileNotFoundException("The given input file " + source + " does not exist!");
+        }
+        if (source.getName().endsWith(XMIND_FILE_EXTENSION)) {
+            ZipFile zip = new ZipFile(source);
+            try {
+                ZipEntry entry = zip.getEntry(CONTENT_XML);
+                if (entry == null) {
+                    throw new ZipException("The given input file " + source + " does not contain a " + CONTENT_XML + ".");
+                }
+                return new ZipEntryInputStream(zip, zip.getInputStream(entry));
+            }
+            catch (IOException e) {
+                Closeables.close(zip, true);
+                throw e;
+            }
+        }
+        else {
+            return FileUtils.openInputStream(source);
+        }
+    }
+
+    /**
+     * Identifies the XMind content of an XMind file by the CRC-32 and the size of its
+     * content.xml entry. Both are read from the central directory of the archive, the
+     * entry is not inflated.
+     * 
+     * @param source either an XMind file or an XML file, must not be null
+     * @return a stamp of the XMind content, or null, if the given file is no XMind file
+     * 
+     * @throws FileNotFoundException if the given file does not exist
+     * @throws ZipException if the given XMind file is not a zip archive or does not contain
+     * a content.xml
+     * @throws IOException if the given file cannot be read
+     */
+    public static String getContentStamp(File source) throws IOException {
+        checkNotNull(source);
+        if (!source.exists()) {
+            throw new FileNotFoundException("The given input file " + source + " does not exist!");
+        }
+        if (!source.getName().endsWith(XMIND_FILE_EXTENSION)) {
+            return null;
+        }
+        try (ZipFile zip = new ZipFile(source)) {
+            ZipEntry entry = zip.getEntry(CONTENT_XML);
+            if (entry == null) {
+                throw new ZipException("The given input file " + source + " does not contain a " + CONTENT_XML + ".");
+            }
+            return Long.toHexString(entry.getCrc()) + ":" + entry.getSize();
+        }
+    }
+
+    /**
+     * Stream of a single zip entry that closes the zip file when it is closed.
+     */
+    private static final class ZipEntryInputStream extends FilterInputStream {
+
+        private final ZipFile zip;
+
+        private ZipEntryInputStream(ZipFile zip, InputStream entry) {
+            super(entry);
+            this.zip = zip;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            }
+            finally {
+                zip.close();
+            }
+        }
+    }
+}
@@ -19,17 +19,25 @@
  */
 package de.haber.xmind2latex;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Maps;
 
 import freemarker.cache.URLTemplateLoader;
 
 /**
  * 
  * Is used to load templates with a given {@link ClassLoader} or from a file reference.
+ * Resolved locations, as well as unresolved names, are cached. Class path resolutions are
+ * kept, resolutions of file templates are checked against the modification time and size
+ * of the file once the check interval elapsed.
  *
  * <br>
  * <br>
@@ -43,9 +51,64 @@ public class XMindTemplateLoader extends URLTemplateLoader {
     /** The file extension from FreeMarker templates is ".ftl". */
     public static final String FM_FILE_EXTENSION = ".ftl";
     
+    /**
+     * Default interval in milliseconds after which the resolution of a file template is checked.
+     * 
+     * @since 1.3.0
+     */
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 5000;
+    
+    /**
+     * System property that sets the check interval in milliseconds of the templates loaded
+     * by the {@link XMindToLatexExporter}.
+     * 
+     * @since 1.3.0
+     */
+    public static final String CHECK_INTERVAL_PROPERTY = "xmind2latex.templateCheckInterval";
+    
     /** the used class loader */
     private final ClassLoader classLoader;
     
+    /** interval after which the resolution of a file template is checked in nanoseconds */
+    private final long checkIntervalNanos;
+    
+    /** resolutions by template name */
+    private final ConcurrentMap<String, Resolution> resolutions = Maps.newConcurrentMap();
+    
+    /**
+     * Resolution of a template name. Immutable, a checked resolution is replaced.
+     */
+    private static final class Resolution {
+        
+        /** resolved location, null if the name has not been resolved */
+        private final URL url;
+        
+        /** file of a file template, null if the resolution does not depend on a file */
+        private final File file;
+        
+        private final long lastModified;
+        
+        private final long length;
+        
+        /** time of the last check */
+        private final long checked;
+        
+        private Resolution(URL url, File file, long checked) {
+            this.url = url;
+            this.file = file;
+            this.lastModified = file != null ? file.lastModified() : 0;
+            this.length = file != null ? file.length() : 0;
+            this.checked = checked;
+        }
+        
+        /**
+         * @return true, if the file of this resolution did not change
+         */
+        private boolean isFileUnchanged() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+    
     /**
      * Creates a new {@link XMindTemplateLoader} that uses the given class
      * loader to load FreeMarker templates from the class path
@@ -53,8 +116,24 @@ public class XMindTemplateLoader extends URLTemplateLoader {
      * @param classLoader used class loader
      */
     public XMindTemplateLoader(final ClassLoader classLoader) {
+        this(classLoader, DEFAULT_CHECK_INTERVAL_MILLIS);
+    }
+    
+    /**
+     * Creates a new {@link XMindTemplateLoader} that uses the given class
+     * loader to load FreeMarker templates from the class path
+     * 
+     * @param classLoader used class loader
+     * @param checkIntervalMillis interval in milliseconds after which the resolution of a file
+     *            template is checked, has to be >= 0. 0 checks the file on each lookup.
+     * 
+     * @since 1.3.0
+     */
+    public XMindTemplateLoader(final ClassLoader classLoader, long checkIntervalMillis) {
         checkNotNull(classLoader);
+        checkArgument(checkIntervalMillis >= 0, "The check interval must not be negative.");
         this.classLoader = classLoader;
+        this.checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
     }
     
     /**
@@ -68,6 +147,28 @@ public class XMindTemplateLoader extends URLTemplateLoader {
      */
     @Override
     protected URL getURL(final String templateName) {
+        Resolution resolution = resolutions.get(templateName);
+        if (resolution != null && resolution.file != null) {
+            long now = System.nanoTime();
+            if (now - resolution.checked >= checkIntervalNanos) {
+                // a changed, created or deleted file is resolved again
+                resolution = resolution.isFileUnchanged() ? new Resolution(resolution.url, resolution.file, now) : null;
+                if (resolution != null) {
+                    resolutions.put(templateName, resolution);
+                }
+            }
+        }
+        if (resolution == null) {
+            resolution = resolve(templateName);
+            resolutions.put(templateName, resolution);
+        }
+        return resolution.url;
+    }
+    
+    /**
+     * Resolves the location of a template without cache, see {@link #getURL(String)}.
+     */
+    private Resolution resolve(final String templateName) {
     	// convert qualified to file name
     	String filename = templateName.replace(".", "/").concat(FM_FILE_EXTENSION);    		
     	    	
@@ -79,6 +180,7 @@ public class XMindTemplateLoader extends URLTemplateLoader {
         // load it from classpath.
         if (result == null && templateName.endsWith(FM_FILE_EXTENSION)) {
             File f = new File(templateName);
+            long checked = System.nanoTime();
             if (f.exists()) {
                 try {
                     result = f.toURI().toURL();
@@ -87,7 +189,8 @@ public class XMindTemplateLoader extends URLTemplateLoader {
                     result = null;
                 }
             }
+            return new Resolution(result, f, checked);
         }
-        return result;
+        return new Resolution(result, null, 0);
     }
 }
@@ -21,45 +21,69 @@ package de.haber.xmind2latex;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.FileAlreadyExistsException;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
-import net.lingala.zip4j.model.FileHeader;
-
-import org.apache.commons.io.FileUtils;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import com.google.common.base.Preconditions;
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 
 import de.haber.xmind2latex.cli.CliParameters;
 import de.haber.xmind2latex.help.ConfigurationException;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
+import freemarker.template.TemplateException;
 
 /**
- * Reads an xMind XML file and produces a latex output from it. 
+ * Reads an xMind XML file and produces a latex output from it. The input file is opened
+ * by {@link #convert()} and closed before it returns, thus an exporter may convert its
+ * input several times. An exporter is immutable, the state of a conversion is kept by the
+ * conversion itself. Thus, a single exporter may convert any inputs with
+ * {@link #convert(File, File)} concurrently from several threads.
  * 
  * <br>
  * <br>
@@ -68,7 +92,7 @@ import freemarker.template.Template;
  * @version $Date$<br>
  *          $Revision$
  */
-public class XMindToLatexExporter {
+public class XMindToLatexExporter implements Closeable {
         
     /**
      * {@link XMindToLatexExporter} {@link Builder}.
@@ -76,14 +100,23 @@ public class XMindToLatexExporter {
      * @since 1.2.0
      */
     public static class Builder {
-        // required fields
+        // input file, null for exporters that only convert given inputs
         private final File in;
         
         private Map<Integer, String> level2endTemplate = Maps.newHashMap();
         private Map<Integer, String> level2startTemplate = Maps.newHashMap();
         private int maxLevel = -1;
         // optional fields - initialized to default values
+        private boolean chapterFiles = false;
         private boolean overwriteExistingFile = false;
+        private boolean keepUnchangedFiles = false;
+        private ParserType parser = ParserType.STAX;
+        private boolean renderCache = false;
+        // 0 uses the default number of render threads
+        private int renderThreads = 0;
+        private boolean skipUnchangedInputs = false;
+        private int splitLevel = DEFAULT_SPLIT_LEVEL;
+        private boolean statistics = false;
         // optional fields - defaults initialized in constructor
         private File targetFile;
         
@@ -94,6 +127,16 @@ public class XMindToLatexExporter {
                         TEMPLATE_PACKAGE + "subsection",
                         TEMPLATE_PACKAGE + "subsubsection");
         
+        /**
+         * Creates a new {@link XMindToLatexExporter} builder without input file. The built
+         * exporter converts the inputs that are given to {@link XMindToLatexExporter#convert(File, File)}.
+         * 
+         * @since 1.3.0
+         */
+        public Builder() {
+            this.in = null;
+        }
+        
         /**
          * Creates a new {@link XMindToLatexExporter} builder for the given input file.
          * 
@@ -104,10 +147,25 @@ public class XMindToLatexExporter {
             checkArgument(in.exists(), "Input file has to exist!");
             this.in = in;
             
-            String outDerived = in.getAbsolutePath().concat(".tex");
+            String outDerived = in.getAbsolutePath().concat(TEX_EXTENSION);
             targetFile = new File(outDerived);
         }
         
+        /**
+         * Enables the collection of detailed statistics that are returned by
+         * {@link XMindToLatexExporter#convert()}: the time of each conversion phase, the topics
+         * per level, the renders and render time per template and the peak heap usage.
+         * 
+         * @param statistics true, if detailed statistics are to be collected
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder collectsStatistics(boolean statistics) {
+            this.statistics = statistics;
+            return this;
+        }
+        
         /**
          * 
          * @return a configured {@link XMindToLatexExporter}.
@@ -118,6 +176,59 @@ public class XMindToLatexExporter {
           return new XMindToLatexExporter(this);
         }
         
+        /**
+         * @return the input file, null if the builder has been created without input file
+         * 
+         * @since 1.3.0
+         */
+        public File getInputFile() {
+            return in;
+        }
+        
+        /**
+         * @return the target file, null if the builder has been created without input file
+         * and no target file has been set
+         */
+        File getTargetFile() {
+            return targetFile;
+        }
+        
+        /**
+         * Creates an independent copy of this builder with the given input file. The copy has
+         * the configuration and the target file of this builder.
+         * 
+         * @param in input file of the copy, null for a copy without input file
+         * @return the copy
+         */
+        Builder copy(File in) {
+            Builder copy = in != null ? new Builder(in) : new Builder();
+            copy.level2endTemplate = Maps.newHashMap(level2endTemplate);
+            copy.level2startTemplate = Maps.newHashMap(level2startTemplate);
+            copy.maxLevel = maxLevel;
+            copy.chapterFiles = chapterFiles;
+            copy.overwriteExistingFile = overwriteExistingFile;
+            copy.keepUnchangedFiles = keepUnchangedFiles;
+            copy.parser = parser;
+            copy.renderCache = renderCache;
+            copy.renderThreads = renderThreads;
+            copy.skipUnchangedInputs = skipUnchangedInputs;
+            copy.splitLevel = splitLevel;
+            copy.statistics = statistics;
+            copy.targetFile = targetFile;
+            copy.templates = Lists.newArrayList(templates);
+            return copy;
+        }
+        
+        /**
+         * @return the configuration of this builder without input and target file. Builders
+         * with equal configurations build exporters that convert any input equally.
+         */
+        List<Object> getConfiguration() {
+            return Arrays.<Object> asList(ImmutableMap.copyOf(level2endTemplate), ImmutableMap.copyOf(level2startTemplate),
+                    maxLevel, chapterFiles, overwriteExistingFile, keepUnchangedFiles, parser, renderCache,
+                    renderThreads, skipUnchangedInputs, splitLevel, statistics, ImmutableList.copyOf(templates));
+        }
+        
         /***
          * @param overwriteExistingFile true, if existing files shall be overridden.
          * 
@@ -128,6 +239,38 @@ public class XMindToLatexExporter {
             return this;
         }
         
+        /**
+         * If enabled, an existing target file is only written, if its content changes. An
+         * unchanged target file keeps its modification time, thus tools like make or latexmk
+         * do not rebuild documents that include it. Existing target files are still only
+         * written, if {@link #overwritesExistingFiles(boolean)} is enabled.
+         * 
+         * @param keepUnchangedFiles true, if unchanged target files are not to be written
+         * @return the builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder keepsUnchangedFiles(boolean keepUnchangedFiles) {
+            this.keepUnchangedFiles = keepUnchangedFiles;
+            return this;
+        }
+        
+        /**
+         * Enables skipping of unchanged XMind inputs. A stamp file is written next to the
+         * target file, see {@link XMindToLatexExporter#STAMP_EXTENSION}. If the content.xml of
+         * the XMind input, the templates and the target file did not change since the previous
+         * conversion, the conversion is skipped. XML inputs are always converted.
+         * 
+         * @param skipUnchangedInputs true, if unchanged inputs are not to be converted again
+         * @return the builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder skipsUnchangedInputs(boolean skipUnchangedInputs) {
+            this.skipUnchangedInputs = skipUnchangedInputs;
+            return this;
+        }
+        
         /**
          * Sets environment start and end templates for the given level.
          * 
@@ -153,7 +296,7 @@ public class XMindToLatexExporter {
         private void validateTemplate(String template) {
             checkNotNull(template);
             try {
-                XMindToLatexExporter.templateConfig.getTemplate(template);
+                TemplateConfigHolder.templateConfig.getTemplate(template);
             }
             catch (IOException e) {
                 TemplateNotExistsException ce = new TemplateNotExistsException(template);
@@ -176,6 +319,91 @@ public class XMindToLatexExporter {
             return this;
         }
         
+        /**
+         * Sets the parser that is used to read the XMind content. Default is {@link ParserType#STAX}.
+         * 
+         * @param parser the parser to use, must not be null
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder withParser(ParserType parser) {
+            checkNotNull(parser);
+            this.parser = parser;
+            return this;
+        }
+        
+        /**
+         * Enables the render cache. Rendered texts of all topics are stored in a file next to
+         * the target file, see {@link XMindToLatexExporter#RENDER_CACHE_EXTENSION}. Topics
+         * that did not change since the previous conversion are not rendered again.
+         * 
+         * @param renderCache true, if the render cache is to be used
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder withRenderCache(boolean renderCache) {
+            this.renderCache = renderCache;
+            return this;
+        }
+        
+        /**
+         * Enables the output of one file per chapter, i.e., per topic of level 1. The chapter
+         * files are written into the chapter directory next to the target file, see
+         * {@link XMindToLatexExporter#getChapterDirectory(File)}, and the target file contains
+         * an <code>\include</code> line for each of them. Chapters are rendered and written
+         * in parallel, by default on as many threads as processors are available. Unchanged
+         * chapter files are kept, if unchanged files are kept, and chapter files of removed
+         * chapters are deleted. Chapter files cannot be combined with the render cache.
+         * 
+         * @param chapterFiles true, if each chapter is written into a file of its own
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder writesChapterFiles(boolean chapterFiles) {
+            this.chapterFiles = chapterFiles;
+            return this;
+        }
+        
+        /**
+         * Sets the number of threads that render the subtrees of a single input in parallel,
+         * see {@link #withSplitLevel(int)}. Default is 1, which renders all topics on the
+         * converting thread, unless chapter files are written. The converting thread still
+         * parses the XMind content and records the subtrees, which are rendered by the render
+         * threads. Parallel rendering cannot be combined with the render cache. The output is
+         * identical to the output of a serial conversion.
+         * 
+         * @param renderThreads number of render threads, has to be > 0
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder withRenderThreads(int renderThreads) {
+            checkArgument(renderThreads > 0);
+            this.renderThreads = renderThreads;
+            return this;
+        }
+        
+        /**
+         * Sets the level at which the topic tree is split into subtrees, if topics are rendered
+         * in parallel. Each topic of this level is rendered together with its subtree as a
+         * separate task, topics above it are rendered on the converting thread. Default is
+         * {@link XMindToLatexExporter#DEFAULT_SPLIT_LEVEL}, i.e., the main branches of each sheet.
+         * If chapter files are written, the topic tree is always split at level 1.
+         * 
+         * @param splitLevel level of the subtree topics, has to be > 0
+         * @return the used builder
+         * 
+         * @since 1.3.0
+         */
+        public Builder withSplitLevel(int splitLevel) {
+            checkArgument(splitLevel > 0);
+            this.splitLevel = splitLevel;
+            return this;
+        }
+        
         /**
          * 
          * @param targetFile the target file, must not be null.
@@ -224,10 +452,46 @@ public class XMindToLatexExporter {
         }
     }
     
+    /**
+     * Default level at which the topic tree is split for parallel rendering, the main branches
+     * below the root topic of each sheet.
+     * 
+     * @since 1.3.0
+     */
+    public static final int DEFAULT_SPLIT_LEVEL = 2;
+    
     /** Used as indention. */
     public static final String INDENT = "  ";
     public static final String NEW_LINE = "\n";
     
+    /**
+     * Format of the chapter file names, see {@link Builder#writesChapterFiles(boolean)}.
+     * 
+     * @since 1.3.0
+     */
+    public static final String CHAPTER_FILE_FORMAT = "chapter-%03d";
+    
+    /**
+     * Extension of latex files.
+     * 
+     * @since 1.3.0
+     */
+    public static final String TEX_EXTENSION = ".tex";
+    
+    /**
+     * Extension that is appended to the target file name to derive the render cache file.
+     * 
+     * @since 1.3.0
+     */
+    public static final String RENDER_CACHE_EXTENSION = ".cache";
+    
+    /**
+     * Extension that is appended to the target file name to derive the stamp file.
+     * 
+     * @since 1.3.0
+     */
+    public static final String STAMP_EXTENSION = ".stamp";
+    
     public static final String TEMPLATE_PACKAGE = "de.haber.xmind2latex.templates.";
     public static final String TEXT = "#text";
     
@@ -235,13 +499,11 @@ public class XMindToLatexExporter {
     
     public static final String TOPIC = "topic";
     
-    private int depthCounter = 0;
+    private static final String TOPIC_ID = "id";
+    
+    private static final String TOPIC_TIMESTAMP = "timestamp";
     
     private final Map<Integer, String> level2endTemplate;
-    /**
-     * Stores indent strings for a specific level.
-     */
-    private final Map<Integer, String> level2indent = Maps.newHashMap();
     private final Map<Integer, String> level2startTemplate;
     
     /**
@@ -253,185 +515,1213 @@ public class XMindToLatexExporter {
     private final boolean overwriteExistingFile;
     
     /**
-     * Target file.
+     * True, if unchanged target files are not written.
+     */
+    private final boolean keepUnchangedFiles;
+    
+    /**
+     * Parser used to read the XMind content.
+     */
+    private final ParserType parser;
+    
+    /**
+     * True, if the render cache is used.
+     */
+    private final boolean useRenderCache;
+    
+    /**
+     * True, if each chapter is written into a file of its own.
+     */
+    private final boolean chapterFiles;
+    
+    /**
+     * Number of threads that render subtrees in parallel, 0 if topics are rendered serially.
+     * The render threads are started for each conversion.
+     */
+    private final int renderThreads;
+    
+    /**
+     * Level of the topics whose subtrees are rendered in parallel, 1 if chapter files are written.
+     */
+    private final int splitLevel;
+    
+    /**
+     * True, if unchanged inputs are skipped.
+     */
+    private final boolean skipUnchangedInputs;
+    
+    /**
+     * True, if detailed statistics are collected.
+     */
+    private final boolean collectStatistics;
+    
+    /**
+     * Target file, null if the exporter has no input file.
      */
     private final File targetFile;
     
-    private static final Configuration templateConfig;
+    /**
+     * Holds the FreeMarker configuration. FreeMarker is loaded and initialized, when the
+     * first template is needed, not when this class is loaded.
+     */
+    private static final class TemplateConfigHolder {
+        
+        private static final Configuration templateConfig;
+        
+        static {
+            templateConfig = new Configuration();
+            templateConfig.setClassForTemplateLoading(XMindToLatexExporter.class, "");
+            long checkInterval = Long.getLong(XMindTemplateLoader.CHECK_INTERVAL_PROPERTY, XMindTemplateLoader.DEFAULT_CHECK_INTERVAL_MILLIS);
+            templateConfig.setTemplateLoader(new XMindTemplateLoader(XMindToLatexExporter.class.getClassLoader(), Math.max(checkInterval, 0)));
+            templateConfig.setLocalizedLookup(false);
+        }
+    }
     
-    static {
-        templateConfig = new Configuration();
-        templateConfig.setClassForTemplateLoading(XMindToLatexExporter.class, "");
-        templateConfig.setTemplateLoader(new XMindTemplateLoader(XMindToLatexExporter.class.getClassLoader()));
-        templateConfig.setLocalizedLookup(false);
+    /**
+     * Holds the StAX factory, which is only initialized, if the {@link ParserType#STAX} parser is used.
+     */
+    private static final class XmlInputFactoryHolder {
+        
+        private static final XMLInputFactory xmlInputFactory;
+        
+        static {
+            xmlInputFactory = XMLInputFactory.newInstance();
+            // adjacent character events are joined in convert(XMLStreamReader, Writer),
+            // CDATA sections have to stay separate as they do in the DOM
+            xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        }
     }
 
     private final List<String> templates;
     
-    private final InputStream xMindSourceStream;
+    /**
+     * Resolved templates by level, null for levels whose texts are not rendered. Levels beyond
+     * the end of this array use {@link #undefinedTemplate}.
+     */
+    private final Template[] levelTemplates;
+    
+    /**
+     * Resolved template of level 0 that is used for levels without a template.
+     */
+    private final Template undefinedTemplate;
+    
+    /**
+     * Resolved environment start templates by level, null for levels without environment.
+     */
+    private final Template[] startEnvironments;
+    
+    /**
+     * Resolved environment end templates by level, null for levels without environment.
+     */
+    private final Template[] endEnvironments;
+    
+    /**
+     * Resolved templates by name.
+     */
+    private final Map<String, Template> resolvedTemplates;
+    
+    /**
+     * Fingerprint of the template configuration, null if neither the render cache is used
+     * nor unchanged inputs are skipped.
+     */
+    private final String templateFingerprint;
+    
+    /**
+     * First level that is rendered with the undefined template as inner level.
+     */
+    private final int firstInnerLevel;
+    
+    /**
+     * Plain renderers of the resolved templates that do not need FreeMarker.
+     */
+    private final Map<Template, PlainTemplate> plainTemplates;
+    
+    /**
+     * XMind or XML input file, null if the exporter only converts given inputs.
+     */
+    private final File xMindSource;
+    
+    /**
+     * Streams returned by {@link #getxMindSourceAsStream()} that have not been closed yet,
+     * they are closed by {@link #close()}.
+     */
+    private final Set<InputStream> openedStreams = Sets.newIdentityHashSet();
+    
+    private volatile boolean closed = false;
     
     /**
-     * Creates a new {@link XMindToLatexExporter}.
+     * Creates a new {@link XMindToLatexExporter}. The input file is validated, but it is not
+     * kept open.
      * 
      * @throws ConfigurationException for invalid input files
      */
     private XMindToLatexExporter(Builder builder) {
-
-        
-        try {
-            xMindSourceStream = setxMindSourceInputStream(builder.in);
-        }
-        catch (Exception e) {
-            ConfigurationException e1 = new ConfigurationException(e.getMessage());
-            e1.addSuppressed(e);
-            throw e1;
+        xMindSource = builder.in;
+        if (xMindSource != null) {
+            try {
+                setxMindSourceInputStream(xMindSource).close();
+            }
+            catch (Exception e) {
+                ConfigurationException e1 = new ConfigurationException(e.getMessage());
+                e1.addSuppressed(e);
+                throw e1;
+            }
         }
 
         targetFile = builder.targetFile;
         overwriteExistingFile = builder.overwriteExistingFile;
+        keepUnchangedFiles = builder.keepUnchangedFiles;
+        parser = builder.parser;
+        useRenderCache = builder.renderCache;
+        if (useRenderCache && builder.renderThreads > 1) {
+            throw new ConfigurationException("The render cache cannot be combined with parallel rendering.");
+        }
+        if (useRenderCache && builder.chapterFiles) {
+            throw new ConfigurationException("The render cache cannot be combined with chapter files.");
+        }
+        chapterFiles = builder.chapterFiles;
+        splitLevel = chapterFiles ? 1 : builder.splitLevel;
+        skipUnchangedInputs = builder.skipUnchangedInputs;
+        collectStatistics = builder.statistics;
         templates = ImmutableList.copyOf(builder.templates);
         maxLevel = builder.maxLevel;
         this.level2startTemplate = ImmutableMap.copyOf(builder.level2startTemplate);
         this.level2endTemplate = ImmutableMap.copyOf(builder.level2endTemplate);
-    }
-    
-    public void convert() throws ParserConfigurationException, SAXException, IOException {
-        InputStream is = getxMindSourceAsStream();
-        if (is == null) {
-            throw new ParserConfigurationException("Call configure() before convert()."); 
-        }
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document document = builder.parse(is);
-        is.close();
-        StringBuilder sb = new StringBuilder();
         
-        sb.append(convert(document.getChildNodes()));
-        
-        String text = sb.toString();
-        save(text);
+        // resolve all templates once, the hot path only indexes by level
+        resolvedTemplates = Maps.newHashMap();
+        plainTemplates = Maps.newIdentityHashMap();
+        for (String template : templates) {
+            resolveTemplate(template);
+        }
+        undefinedTemplate = resolveTemplate(templates.get(0));
+        levelTemplates = new Template[templates.size()];
+        for (int level = 1; level < levelTemplates.length; level++) {
+            // the undefined template is used beyond the max level
+            levelTemplates[level] = maxLevel != -1 && level > maxLevel ? undefinedTemplate : resolveTemplate(templates.get(level));
+        }
+        startEnvironments = resolveEnvironments(level2startTemplate);
+        endEnvironments = resolveEnvironments(level2endTemplate);
+        firstInnerLevel = maxLevel != -1 ? maxLevel + 1 : templates.size();
+        templateFingerprint = useRenderCache || skipUnchangedInputs ? getTemplateFingerprint() : null;
+        if (builder.renderThreads > 1 || chapterFiles) {
+            renderThreads = builder.renderThreads > 0 ? builder.renderThreads : Runtime.getRuntime().availableProcessors();
+        }
+        else {
+            renderThreads = 0;
+        }
     }
     
     /**
-     * @param childNodes
-     * @return
+     * Resolves the given template, only used while the exporter is built.
+     * 
+     * @param template name of a template
+     * @return the loaded template, which is shared by all usages of the same name
+     * @throws TemplateNotExistsException if the template cannot be loaded
      */
-    private StringBuilder convert(NodeList childNodes) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node n = childNodes.item(i);
-            if (n.getNodeName().equals(TEXT)) {
-                String text = n.getNodeValue().replace(NEW_LINE, " ").replace("\t", "").trim();
-                sb.append(getTextForLevel(depthCounter, text));
-                sb.append(NEW_LINE);
+    private Template resolveTemplate(String template) {
+        Template t = resolvedTemplates.get(template);
+        if (t == null) {
+            try {
+                t = TemplateConfigHolder.templateConfig.getTemplate(template);
             }
-            
-            if (n.getNodeName().equals(TOPIC)) {
-                depthCounter++;
-                sb.append(getStartEnvironment(depthCounter));
+            catch (IOException e) {
+                TemplateNotExistsException te = new TemplateNotExistsException(template);
+                te.addSuppressed(e);
+                throw te;
             }
-            sb.append(convert(n.getChildNodes()));
-            if (n.getNodeName().equals(TOPIC)) {
-                sb.append(getEndEnvironment(depthCounter));
-                depthCounter--;
+            resolvedTemplates.put(template, t);
+            PlainTemplate plain = PlainTemplate.compile(t);
+            if (plain != null) {
+                plainTemplates.put(t, plain);
             }
         }
-        return sb;
+        return t;
     }
     
     /**
-     * @param depthCounter2
-     * @return
+     * @param level2template either the start or the end environment templates
+     * @return the resolved environment templates indexed by level
      */
-    public String getEndEnvironment(int level) {
-        String templ = level2endTemplate.get(level);
-        if (templ != null) {
-            return processTemplate(templ, level, "");
-        }
-        else {
-            return "";            
+    private Template[] resolveEnvironments(Map<Integer, String> level2template) {
+        int size = level2template.isEmpty() ? 0 : Collections.max(level2template.keySet()) + 1;
+        Template[] environments = new Template[size];
+        for (Map.Entry<Integer, String> entry : level2template.entrySet()) {
+            environments[entry.getKey()] = resolveTemplate(entry.getValue());
         }
+        return environments;
     }
     
     /**
+     * Converts the configured XMind source with the configured {@link ParserType} and stores
+     * the result in the target file. The target file is checked before the conversion starts,
+     * templates are rendered directly into the target file. If the conversion fails, the
+     * incomplete target file is removed. If unchanged files are kept, the rendered content
+     * is compared with the existing target file while it is written, and the target file is
+     * only replaced if the content changed. A failed conversion then leaves the existing target
+     * file untouched. The input file is opened by this method and is
+     * always closed before it returns. If the render cache is enabled, it is updated after
+     * a successful conversion. If unchanged inputs are skipped and neither the XMind content,
+     * the templates nor the target file changed since the previous conversion, the input
+     * is neither read nor converted.
      * 
-     * @param inner indention level
-     * @return an indention string for the given level 
-     */
-    private String getIndention(int inner) {
-    	if (!level2indent.containsKey(inner)) {
-    		StringBuilder sb = new StringBuilder();
-    		for ( int i = 0; i < inner; i++) {
-    			sb.append(INDENT);
-    		}
-    		level2indent.put(inner, sb.toString());
-    	}
-		return level2indent.get(inner);
-	}
-
-    /**
-     * @return The maximal level used for template processing. -1 corresponds to
-     * 'process all available templates'.
+     * @return the result of the conversion, including detailed statistics, if enabled
+     * @throws SAXException if the XMind content cannot be parsed, independent from the used parser
+     * @throws FileAlreadyExistsException if the target file already exists and force overwrite is not enabled
+     * @throws IllegalStateException if this exporter has been closed or has no input file
      */
-    public int getMaxLevel() {
-        return maxLevel;
+    public ConversionResult convert() throws ParserConfigurationException, SAXException, IOException {
+        return convert((Semaphore) null);
     }
-
+    
     /**
-     * @param depthCounter2
-     * @return
+     * Converts the configured XMind source, see {@link #convert()}. Parsing, rendering and
+     * writing the target file only start after a permit of the given semaphore has been
+     * acquired, which is released when the conversion ends. Checking whether an unchanged input
+     * is skipped does not need a permit. Thus, conversions of a batch may run on as many threads
+     * as they like, while the CPU-bound rendering is limited by the number of permits.
+     * 
+     * @param renderPermits limits concurrent renders, null if renders are not limited
+     * @return the result of the conversion, including detailed statistics, if enabled
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting for a permit
+     * @throws IllegalStateException if this exporter has been closed or has no input file
+     * 
+     * @since 1.3.0
      */
-    public String getStartEnvironment(int level) {
-        String templ = level2startTemplate.get(level);
-        if (templ != null) {
-            return processTemplate(templ, level, "");
-        }
-        else {
-            return "";            
-        }
+    ConversionResult convert(Semaphore renderPermits) throws ParserConfigurationException, SAXException, IOException {
+        checkState(xMindSource != null, "The exporter has no input file.");
+        return convert(xMindSource, targetFile, renderPermits);
     }
     
     /**
-     * @return the targetFile
+     * Converts the given XMind source into the given target file with the configuration of
+     * this exporter, see {@link #convert()}. The render cache and the stamp file, if enabled,
+     * are located next to the given target file. Each conversion keeps its own state, thus
+     * this method may be called concurrently, as long as the conversions do not share their
+     * target files.
+     * 
+     * @param source XMind or XML input file, must exist
+     * @param target target file, must not be null
+     * @return the result of the conversion, including detailed statistics, if enabled
+     * @throws SAXException if the XMind content cannot be parsed, independent from the used parser
+     * @throws FileAlreadyExistsException if the target file already exists and force overwrite is not enabled
+     * @throws IllegalStateException if this exporter has been closed
+     * 
+     * @since 1.3.0
      */
-    public File getTargetFile() {
-        return targetFile;
+    public ConversionResult convert(File source, File target) throws ParserConfigurationException, SAXException, IOException {
+        return convert(source, target, null);
     }
     
     /**
-     * @return the templates
+     * Converts the given XMind source into the given target file, see {@link #convert(File, File)}
+     * and {@link #convert(Semaphore)}.
+     * 
+     * @param renderPermits limits concurrent renders, null if renders are not limited
      */
-    public List<String> getTemplates() {
-        return templates;
+    ConversionResult convert(File source, File target, Semaphore renderPermits) throws ParserConfigurationException, SAXException, IOException {
+        checkNotNull(source);
+        checkNotNull(target);
+        checkState(!closed, "The exporter has already been closed.");
+        ConversionEvent event = new ConversionEvent();
+        event.begin();
+        ConversionResult result = null;
+        try {
+            result = convertInput(source, target, renderPermits);
+            return result;
+        }
+        finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.input = source.getPath();
+                event.target = target.getPath();
+                event.failed = result == null;
+                if (result != null) {
+                    event.bytes = result.getOutputBytes();
+                    event.skipped = result.isSkipped();
+                }
+                event.commit();
+            }
+        }
     }
     
-    
-    
-    private String getTextForLevel(int level, String text) {
-        String template;
-        // we are using the undefined template, if the current level is higher
-        // then the amount of registered templates
-        if (level >= templates.size()) {
-            template = templates.get(0);
+    /**
+     * Converts the given input file, see {@link #convert(File, File)}. The permit is acquired
+     * after the stamp check, before any file is opened.
+     */
+    private ConversionResult convertInput(File source, File target, Semaphore renderPermits) throws ParserConfigurationException, SAXException, IOException {
+        long start = System.nanoTime();
+        ConversionStamp stamp = null;
+        File stampFile = getStampFile(target);
+        if (stampFile != null) {
+            String content = XMindContentReader.getContentStamp(source);
+            if (content != null) {
+                stamp = new ConversionStamp(source, content, templateFingerprint, chapterFiles ? getChapterDirectory(target) : null);
+                if (stamp.isCurrent(stampFile, target)) {
+                    return new ConversionResult(source, target, chapterFiles ? getChapterDirectory(target) : null, true,
+                            System.nanoTime() - start, null);
+                }
+            }
         }
-        else if (level <= 0) {
-            return "";
+        if (renderPermits != null) {
+            try {
+                renderPermits.acquire();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a render permit.");
+            }
         }
-        // we are using the undefined template if the current level is higher
-        // then the max level and the max level is set
-        else if (level > getMaxLevel() && getMaxLevel() != -1) {
-            template = templates.get(0);
+        try {
+            return convertInput(source, target, stamp, stampFile, start);
         }
-        else {
-            template = templates.get(level);
+        finally {
+            if (renderPermits != null) {
+                renderPermits.release();
+            }
         }
-        return processTemplate(template, level, text);
     }
     
-    public InputStream getxMindSourceAsStream() {
-        return this.xMindSourceStream;
+    /**
+     * Converts the given input file after the stamp check, see {@link #convertInput(File, File, Semaphore)}.
+     * 
+     * @param stamp stamp that is saved after the conversion, null if unchanged inputs are not skipped
+     * @param start start of the conversion
+     */
+    private ConversionResult convertInput(File source, File target, ConversionStamp stamp, File stampFile, long start)
+            throws ParserConfigurationException, SAXException, IOException {
+        File renderCacheFile = getRenderCacheFile(target);
+        RenderCache renderCache = renderCacheFile != null ? RenderCache.load(renderCacheFile, templateFingerprint) : null;
+        StatisticsCollector statistics = collectStatistics ? new StatisticsCollector() : null;
+        ConversionState state = new ConversionState(firstInnerLevel, renderCache, statistics);
+        state.chapterDirectory = chapterFiles ? getChapterDirectory(target) : null;
+        InputStream is = setxMindSourceInputStream(source);
+        try {
+            ChangedFileOutputStream targetStream = openTargetStream(target);
+            Writer out;
+            if (statistics != null) {
+                is = statistics.timeReads(is);
+                out = new BufferedWriter(new OutputStreamWriter(statistics.timeWrites(targetStream), Charsets.UTF_8));
+            }
+            else {
+                out = new BufferedWriter(new OutputStreamWriter(targetStream, Charsets.UTF_8));
+            }
+            ParseEvent parseEvent = new ParseEvent();
+            parseEvent.begin();
+            try {
+                render(is, out, state);
+            }
+            catch (Exception e) {
+                // do not leave an incomplete target file behind, an existing file is kept
+                targetStream.abort();
+                discardChapters(state);
+                throw e;
+            }
+            parseEvent.end();
+            if (parseEvent.shouldCommit()) {
+                parseEvent.input = source.getPath();
+                parseEvent.parser = parser.name();
+                parseEvent.commit();
+            }
+            if (statistics != null) {
+                statistics.enter(ConversionResult.Phase.WRITE);
+            }
+            WriteEvent writeEvent = new WriteEvent();
+            writeEvent.begin();
+            if (state.chapterDirectory != null) {
+                saveChapters(state, targetStream);
+                deleteRemovedChapters(state.chapterDirectory, state.chapters);
+            }
+            out.close();
+            if (renderCache != null) {
+                renderCache.save();
+            }
+            if (stamp != null) {
+                stamp.save(stampFile, target);
+            }
+            writeEvent.end();
+            if (writeEvent.shouldCommit()) {
+                writeEvent.target = target.getPath();
+                writeEvent.bytes = target.length();
+                writeEvent.commit();
+            }
+            if (statistics != null) {
+                statistics.finish();
+            }
+            return new ConversionResult(source, target, state.chapterDirectory, false, System.nanoTime() - start, statistics);
+        }
+        finally {
+            is.close();
+        }
+    }
+    
+    /**
+     * Replaces the chapter files of a successfully rendered conversion. If a chapter file
+     * cannot be replaced, the remaining chapter files and the target file are discarded.
+     * 
+     * @param state state of the rendered conversion
+     * @param targetStream stream of the target file
+     * @throws IOException if a chapter file cannot be replaced
+     */
+    private static void saveChapters(ConversionState state, ChangedFileOutputStream targetStream) throws IOException {
+        try {
+            for (SubtreeTask task : state.chapterTasks) {
+                task.saveChapter();
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            targetStream.abort();
+            discardChapters(state);
+            throw e;
+        }
+    }
+    
+    /**
+     * Discards the chapter files of a failed conversion, existing chapter files are kept.
+     * 
+     * @param state state of the failed conversion
+     */
+    private static void discardChapters(ConversionState state) {
+        for (SubtreeTask task : state.chapterTasks) {
+            task.discardChapter();
+        }
+    }
+    
+    /**
+     * Renders the given XMind content with the configured parser and templates. Neither the
+     * target file, nor the render cache or the stamp file are used.
+     * 
+     * @param is the XMind content, i.e., the content.xml of an XMind file
+     * @param out receives the converted content
+     * @throws SAXException if the XMind content cannot be parsed, independent from the used parser
+     */
+    void render(InputStream is, Writer out) throws ParserConfigurationException, SAXException, IOException {
+        render(is, out, new ConversionState(firstInnerLevel, null, null));
+    }
+    
+    /**
+     * Renders the given XMind content with the given conversion state, see {@link #render(InputStream, Writer)}.
+     */
+    private void render(InputStream is, Writer out, ConversionState state) throws ParserConfigurationException, SAXException, IOException {
+        if (renderThreads == 0) {
+            parse(is, out, state);
+            return;
+        }
+        // the render threads only live as long as the conversion
+        state.renderPool = new ForkJoinPool(renderThreads);
+        state.parallel = new ParallelRendering(out, state.statistics);
+        try {
+            parse(is, state.parallel.getSerialWriter(), state);
+            state.parallel.finish();
+        }
+        finally {
+            state.parallel.cancel();
+            state.parallel = null;
+            state.renderPool.shutdown();
+            state.renderPool = null;
+        }
+    }
+    
+    /**
+     * Parses the given XMind content with the configured parser and renders its topics, see
+     * {@link #render(InputStream, Writer)}.
+     */
+    private void parse(InputStream is, Writer out, ConversionState state) throws ParserConfigurationException, SAXException, IOException {
+        if (parser == ParserType.DOM) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            Document document = builder.parse(is);
+            is.close();
+            
+            convert(state, document.getChildNodes(), out);
+        }
+        else {
+            try {
+                XMLStreamReader reader = XmlInputFactoryHolder.xmlInputFactory.createXMLStreamReader(is);
+                try {
+                    convert(state, reader, out);
+                }
+                finally {
+                    reader.close();
+                }
+            }
+            catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+    }
+    
+    /**
+     * Closes all streams that have been returned by {@link #getxMindSourceAsStream()}.
+     * Afterwards, the exporter cannot be used anymore.
+     * 
+     * @since 1.3.0
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        // closing a stream removes it from the opened streams
+        List<InputStream> streams = Lists.newArrayList(openedStreams);
+        openedStreams.clear();
+        IOException first = null;
+        for (InputStream stream : streams) {
+            try {
+                stream.close();
+            }
+            catch (IOException e) {
+                if (first == null) {
+                    first = e;
+                }
+                else {
+                    first.addSuppressed(e);
+                }
+            }
+        }
+        if (first != null) {
+            throw first;
+        }
+    }
+    
+    /**
+     * Converts the given nodes and their children recursively. All rendered fragments are
+     * appended to the given writer that is shared by the whole conversion.
+     * 
+     * @param state state of the running conversion
+     * @param childNodes nodes to convert
+     * @param out receives the converted content
+     * @throws IOException if the converted content cannot be written
+     */
+    private void convert(ConversionState state, NodeList childNodes, Writer out) throws IOException {
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            Node n = childNodes.item(i);
+            if (n.getNodeName().equals(TEXT)) {
+                writeText(state, cleanText(n.getNodeValue()), out);
+            }
+            
+            if (n.getNodeName().equals(TOPIC)) {
+                Element topic = (Element) n;
+                beginTopic(state, emptyToNull(topic.getAttribute(TOPIC_ID)), emptyToNull(topic.getAttribute(TOPIC_TIMESTAMP)), out);
+            }
+            convert(state, n.getChildNodes(), out);
+            if (n.getNodeName().equals(TOPIC)) {
+                endTopic(state, out);
+            }
+        }
+    }
+    
+    /**
+     * Converts the XMind content while it is read by the given reader. The topic depth
+     * is tracked on topic start and end events and every text is rendered as soon as
+     * it is complete. The result is identical to the result of {@link #convert(ConversionState, NodeList, Writer)}
+     * for the same content.
+     * 
+     * @param state state of the running conversion
+     * @param reader reader positioned at the start of the document
+     * @param out receives the converted content
+     * @throws XMLStreamException if the content is not well-formed
+     * @throws IOException if the converted content cannot be written
+     */
+    private void convert(ConversionState state, XMLStreamReader reader, Writer out) throws XMLStreamException, IOException {
+        // collects adjacent character events that form a single DOM text node
+        StringBuilder text = new StringBuilder();
+        boolean pendingText = false;
+        int elementDepth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                // the DOM has no text nodes outside of the root element
+                if (elementDepth > 0) {
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    pendingText = true;
+                }
+                continue;
+            }
+            if (pendingText) {
+                writeText(state, cleanText(text.toString()), out);
+                text.setLength(0);
+                pendingText = false;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                elementDepth++;
+                if (TOPIC.equals(getNodeName(reader))) {
+                    beginTopic(state, reader.getAttributeValue(null, TOPIC_ID), reader.getAttributeValue(null, TOPIC_TIMESTAMP), out);
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                elementDepth--;
+                if (TOPIC.equals(getNodeName(reader))) {
+                    endTopic(state, out);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Enters a topic and renders the start environment of its level.
+     * 
+     * @param state state of the running conversion
+     * @param id id of the topic, may be null
+     * @param timestamp timestamp of the topic, may be null
+     * @param out receives the rendered environment
+     * @throws IOException if the rendered environment cannot be written
+     */
+    private void beginTopic(ConversionState state, String id, String timestamp, Writer out) throws IOException {
+        if (state.parallel != null && (state.subtree != null || state.depth + 1 == splitLevel)) {
+            // topics of the split level are recorded with their subtrees and rendered in parallel
+            if (state.subtree == null) {
+                state.subtree = new Subtree();
+            }
+            state.subtree.beginTopic(id, timestamp);
+            return;
+        }
+        state.depth++;
+        if (state.statistics != null) {
+            state.statistics.topic(state.depth);
+        }
+        if (state.renderCache != null) {
+            state.renderCache.beginTopic(id, timestamp, state.depth);
+        }
+        writeEnvironment(state, startEnvironments, state.depth, out);
+    }
+    
+    /**
+     * Renders the end environment of the current level and leaves the current topic.
+     * 
+     * @param state state of the running conversion
+     * @param out receives the rendered environment
+     * @throws IOException if the rendered environment cannot be written
+     */
+    private void endTopic(ConversionState state, Writer out) throws IOException {
+        if (state.subtree != null) {
+            if (state.subtree.endTopic()) {
+                StatisticsCollector statistics = state.statistics != null ? StatisticsCollector.forPart() : null;
+                File chapterFile = null;
+                if (state.chapterDirectory != null) {
+                    state.chapters++;
+                    chapterFile = getChapterFile(state.chapterDirectory, state.chapters);
+                }
+                SubtreeTask task = new SubtreeTask(state.subtree, statistics, chapterFile);
+                if (chapterFile != null) {
+                    state.chapterTasks.add(task);
+                }
+                state.renderPool.execute(task);
+                state.parallel.add(task, statistics);
+                state.subtree = null;
+            }
+            return;
+        }
+        writeEnvironment(state, endEnvironments, state.depth, out);
+        if (state.renderCache != null) {
+            state.renderCache.endTopic();
+        }
+        state.depth--;
+    }
+    
+    /**
+     * Renders a text of the current level followed by a line break. If the render cache
+     * is enabled, a cached rendering of an unchanged topic is used instead.
+     * 
+     * @param state state of the running conversion
+     * @param text cleaned text
+     * @param out receives the rendered text
+     * @throws IOException if the rendered text cannot be written
+     */
+    private void writeText(ConversionState state, String text, Writer out) throws IOException {
+        if (state.subtree != null) {
+            state.subtree.text(text);
+            return;
+        }
+        if (state.renderCache == null) {
+            writeTextForLevel(state, state.depth, text, out);
+        }
+        else {
+            String rendered = state.renderCache.nextText();
+            if (rendered == null) {
+                rendered = getTextForLevel(state, state.depth, text);
+            }
+            state.renderCache.addText(rendered);
+            out.write(rendered);
+        }
+        out.write(NEW_LINE);
+    }
+    
+    /**
+     * Renders a recorded subtree with a conversion state of its own on a thread of the render pool.
+     * The rendered subtree is either the result of the task, or it is written into a chapter file
+     * and the result is the <code>\include</code> line of the chapter file. The chapter file is
+     * kept open until the whole conversion succeeded, see {@link #saveChapter()}.
+     */
+    final class SubtreeTask extends RecursiveTask<String> implements Subtree.Visitor {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final transient Subtree subtree;
+        
+        private final transient ConversionState state;
+        
+        private final transient StringWriter out = new StringWriter();
+        
+        /** chapter file that receives the rendered subtree, null if the subtree is returned */
+        private final transient File chapterFile;
+        
+        /** open stream of the chapter file, null until the subtree has been rendered */
+        private transient ChangedFileOutputStream chapterStream;
+        
+        /** true, if the conversion failed and the chapter file must not be written */
+        private transient boolean discarded = false;
+        
+        /**
+         * @param subtree the recorded subtree
+         * @param statistics statistics of the subtree, may be null
+         * @param chapterFile chapter file that receives the rendered subtree, may be null
+         */
+        private SubtreeTask(Subtree subtree, StatisticsCollector statistics, File chapterFile) {
+            this.subtree = subtree;
+            this.chapterFile = chapterFile;
+            this.state = new ConversionState(firstInnerLevel, null, statistics);
+            // the subtree starts below the topic that contains it
+            state.depth = splitLevel - 1;
+        }
+        
+        @Override
+        protected String compute() {
+            try {
+                subtree.accept(this);
+            }
+            catch (IOException e) {
+                // a StringWriter does not throw IOExceptions
+                throw new IllegalStateException(e);
+            }
+            if (chapterFile != null) {
+                try {
+                    writeChapter(out.toString());
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (state.statistics != null) {
+                state.statistics.finish();
+            }
+            if (chapterFile != null) {
+                // latex expects forward slashes and no extension
+                return "\\include{" + chapterFile.getParentFile().getName() + "/" + Files.getNameWithoutExtension(chapterFile.getName()) + "}" + NEW_LINE;
+            }
+            return out.toString();
+        }
+        
+        /**
+         * Writes the rendered subtree into the chapter file without replacing it yet.
+         * 
+         * @param content the rendered subtree
+         * @throws IOException if the chapter file cannot be written
+         */
+        private synchronized void writeChapter(String content) throws IOException {
+            if (discarded) {
+                return;
+            }
+            chapterStream = openTargetStream(chapterFile);
+            Writer writer = new OutputStreamWriter(chapterStream, Charsets.UTF_8);
+            try {
+                writer.write(content);
+                writer.flush();
+            }
+            catch (IOException | RuntimeException e) {
+                chapterStream.abort();
+                chapterStream = null;
+                throw e;
+            }
+        }
+        
+        /**
+         * Replaces the chapter file with the rendered subtree, only called after the task
+         * completed.
+         * 
+         * @throws IOException if the chapter file cannot be replaced
+         */
+        synchronized void saveChapter() throws IOException {
+            checkState(chapterStream != null && !discarded, "The chapter " + chapterFile + " has not been rendered.");
+            chapterStream.close();
+        }
+        
+        /**
+         * Discards the rendered subtree, an existing chapter file is kept. If the task is still
+         * running, it does not write the chapter file anymore.
+         */
+        synchronized void discardChapter() {
+            discarded = true;
+            if (chapterStream != null) {
+                chapterStream.abort();
+            }
+        }
+        
+        @Override
+        public void beginTopic(String id, String timestamp) throws IOException {
+            XMindToLatexExporter.this.beginTopic(state, id, timestamp, out);
+        }
+        
+        @Override
+        public void text(String text) throws IOException {
+            writeText(state, text, out);
+        }
+        
+        @Override
+        public void endTopic() throws IOException {
+            XMindToLatexExporter.this.endTopic(state, out);
+        }
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+    
+    /**
+     * @param reader reader positioned at a start or end element
+     * @return the element name as it is returned by {@link Node#getNodeName()} of a non namespace
+     * aware DOM.
+     */
+    private static String getNodeName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.isEmpty()) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+    
+    /**
+     * @param value raw text of a text node
+     * @return the given text without line breaks, tabs and surrounding whitespace
+     */
+    private static String cleanText(String value) {
+        return value.replace(NEW_LINE, " ").replace("\t", "").trim();
+    }
+    
+    /**
+     * Renders the environment template that is registered for the given level, if any.
+     * 
+     * @param state state of the running conversion
+     * @param environments either the start or the end environments
+     * @param level current level
+     * @param out receives the rendered environment
+     * @throws IOException if the rendered environment cannot be written
+     */
+    private void writeEnvironment(ConversionState state, Template[] environments, int level, Writer out) throws IOException {
+        Template templ = getEnvironment(environments, level);
+        if (templ != null) {
+            if (state.renderCache == null) {
+                processTemplate(state, templ, level, "", out);
+            }
+            else {
+                String rendered = state.renderCache.getEnvironment(templ.getName(), level);
+                if (rendered == null) {
+                    rendered = processTemplate(state, templ, level, "");
+                    state.renderCache.putEnvironment(templ.getName(), level, rendered);
+                }
+                out.write(rendered);
+            }
+        }
+    }
+    
+    /**
+     * @param depthCounter2
+     * @return
+     */
+    public String getEndEnvironment(int level) {
+        Template templ = getEnvironment(endEnvironments, level);
+        if (templ != null) {
+            return processTemplate(new ConversionState(firstInnerLevel, null, null), templ, level, "");
+        }
+        else {
+            return "";            
+        }
     }
+    
 
+    /**
+     * @return The maximal level used for template processing. -1 corresponds to
+     * 'process all available templates'.
+     */
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    /**
+     * @param depthCounter2
+     * @return
+     */
+    public String getStartEnvironment(int level) {
+        Template templ = getEnvironment(startEnvironments, level);
+        if (templ != null) {
+            return processTemplate(new ConversionState(firstInnerLevel, null, null), templ, level, "");
+        }
+        else {
+            return "";            
+        }
+    }
+    
+    /**
+     * @return the parser used to read the XMind content
+     * 
+     * @since 1.3.0
+     */
+    public ParserType getParser() {
+        return parser;
+    }
+    
+    /**
+     * @return the chapter directory of the configured target file, or null, if no chapter
+     * files are written or the exporter has no input file
+     * 
+     * @since 1.3.0
+     */
+    public File getChapterDirectory() {
+        return chapterFiles && targetFile != null ? getChapterDirectory(targetFile) : null;
+    }
+    
+    /**
+     * @param target a target file
+     * @return the directory that contains the chapter files of the given target file: the
+     * target file name without the extension {@value #TEX_EXTENSION} and with dashes instead
+     * of dots, which latex does not accept in included paths, followed by "-chapters",
+     * e.g., "jms-xmind-chapters" for "jms.xmind.tex"
+     * 
+     * @since 1.3.0
+     */
+    public static File getChapterDirectory(File target) {
+        String name = target.getName();
+        if (name.endsWith(TEX_EXTENSION)) {
+            name = name.substring(0, name.length() - TEX_EXTENSION.length());
+        }
+        return new File(target.getAbsoluteFile().getParentFile(), name.replace('.', '-') + "-chapters");
+    }
+    
+    /**
+     * @param chapterDirectory a chapter directory, see {@link #getChapterDirectory(File)}
+     * @param chapter number of the chapter, starting with 1
+     * @return the file of the given chapter, see {@link #CHAPTER_FILE_FORMAT}
+     */
+    static File getChapterFile(File chapterDirectory, int chapter) {
+        return new File(chapterDirectory, String.format(Locale.ENGLISH, CHAPTER_FILE_FORMAT, chapter) + TEX_EXTENSION);
+    }
+    
+    /**
+     * @return true, if each chapter is written into a file of its own
+     * 
+     * @since 1.3.0
+     */
+    public boolean isWriteChapterFiles() {
+        return chapterFiles;
+    }
+    
+    /**
+     * @return the number of threads that render subtrees in parallel, 1 if topics are rendered serially
+     * 
+     * @since 1.3.0
+     */
+    public int getRenderThreads() {
+        return renderThreads > 0 ? renderThreads : 1;
+    }
+    
+    /**
+     * @return the level at which the topic tree is split for parallel rendering
+     * 
+     * @since 1.3.0
+     */
+    public int getSplitLevel() {
+        return splitLevel;
+    }
+    
+    /**
+     * @return the render cache file of the configured target file, or null, if the render
+     * cache is disabled or the exporter has no input file
+     * 
+     * @since 1.3.0
+     */
+    public File getRenderCacheFile() {
+        return targetFile != null ? getRenderCacheFile(targetFile) : null;
+    }
+    
+    /**
+     * @param target a target file
+     * @return the render cache file of the given target file, or null, if the render cache is disabled
+     */
+    private File getRenderCacheFile(File target) {
+        return useRenderCache ? new File(target.getPath() + RENDER_CACHE_EXTENSION) : null;
+    }
+    
+    /**
+     * @return the stamp file of the configured target file, or null, if unchanged inputs are
+     * converted again or the exporter has no input file
+     * 
+     * @since 1.3.0
+     */
+    public File getStampFile() {
+        return targetFile != null ? getStampFile(targetFile) : null;
+    }
+    
+    /**
+     * @param target a target file
+     * @return the stamp file of the given target file, or null, if unchanged inputs are converted again
+     */
+    private File getStampFile(File target) {
+        return skipUnchangedInputs ? new File(target.getPath() + STAMP_EXTENSION) : null;
+    }
+    
+    /**
+     * @return true, if detailed statistics are collected by {@link #convert()}
+     * 
+     * @since 1.3.0
+     */
+    public boolean collectsStatistics() {
+        return collectStatistics;
+    }
+    
+    /**
+     * @return the targetFile, null if the exporter has no input file
+     */
+    public File getTargetFile() {
+        return targetFile;
+    }
+    
+    /**
+     * @return the templates
+     */
+    public List<String> getTemplates() {
+        return templates;
+    }
+    
+    /**
+     * Computes a fingerprint of everything that affects the rendering of a text besides the
+     * text and its level: the level templates, the environment templates, the maximal template
+     * level, and the sources of all used templates.
+     * 
+     * @return the fingerprint of the template configuration
+     * @throws TemplateNotExistsException if a template cannot be loaded
+     */
+    private String getTemplateFingerprint() {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(maxLevel);
+        hasher.putInt(templates.size());
+        for (String template : templates) {
+            putTemplate(hasher, template);
+        }
+        for (Map<Integer, String> level2template : ImmutableList.of(level2startTemplate, level2endTemplate)) {
+            hasher.putInt(level2template.size());
+            for (Map.Entry<Integer, String> entry : new TreeMap<Integer, String>(level2template).entrySet()) {
+                hasher.putInt(entry.getKey());
+                putTemplate(hasher, entry.getValue());
+            }
+        }
+        return hasher.hash().toString();
+    }
+    
+    private void putTemplate(Hasher hasher, String template) {
+        String source = resolvedTemplates.get(template).toString();
+        hasher.putInt(template.length()).putString(template, Charsets.UTF_8);
+        hasher.putInt(source.length()).putString(source, Charsets.UTF_8);
+    }
+    
+    
+    
+    private String getTextForLevel(ConversionState state, int level, String text) {
+        Template template = getTemplateForLevel(level);
+        if (template == null) {
+            return "";
+        }
+        return processTemplate(state, template, level, text);
+    }
+    
+    /**
+     * Renders the given text with the template of the given level.
+     * 
+     * @param state state of the running conversion
+     * @param level level of the text
+     * @param text text to render
+     * @param out receives the rendered text
+     * @throws IOException if the rendered text cannot be written
+     */
+    private void writeTextForLevel(ConversionState state, int level, String text, Writer out) throws IOException {
+        Template template = getTemplateForLevel(level);
+        if (template != null) {
+            processTemplate(state, template, level, text, out);
+        }
+    }
+    
+    /**
+     * @param level level of a text
+     * @return the template that is used for texts of the given level, or null, if texts of
+     * the given level are not rendered.
+     */
+    private Template getTemplateForLevel(int level) {
+        // we are using the undefined template, if the current level is higher
+        // then the amount of registered templates
+        if (level >= levelTemplates.length) {
+            return undefinedTemplate;
+        }
+        return level > 0 ? levelTemplates[level] : null;
+    }
+    
+    /**
+     * @param environments either the start or the end environments
+     * @param level current level
+     * @return the environment template of the given level, or null, if the level has no environment
+     */
+    private static Template getEnvironment(Template[] environments, int level) {
+        return level >= 0 && level < environments.length ? environments[level] : null;
+    }
+    
+    /**
+     * Opens a new stream of the XMind content. The caller should close the stream, streams
+     * that are still open are closed by {@link #close()}.
+     * 
+     * @return a new stream of the XMind content
+     * @throws IOException if the input file cannot be opened
+     * @throws IllegalStateException if this exporter has been closed or has no input file
+     */
+    public synchronized InputStream getxMindSourceAsStream() throws IOException {
+        checkState(!closed, "The exporter has already been closed.");
+        checkState(xMindSource != null, "The exporter has no input file.");
+        InputStream stream;
+        if (xMindSource.getName().endsWith(XMindContentReader.XMIND_FILE_EXTENSION)) {
+            stream = new FilterInputStream(setxMindSourceInputStream(xMindSource)) {
+                
+                @Override
+                public void close() throws IOException {
+                    untrack(this);
+                    super.close();
+                }
+            };
+        }
+        else {
+            stream = new FileInputStream(xMindSource) {
+                
+                @Override
+                public void close() throws IOException {
+                    untrack(this);
+                    super.close();
+                }
+            };
+        }
+        openedStreams.add(stream);
+        return stream;
+    }
+    
+    /**
+     * Removes a closed stream from the streams that are closed by {@link #close()}.
+     */
+    private synchronized void untrack(InputStream stream) {
+        openedStreams.remove(stream);
+    }
+
+    /**
+     * @return true, if unchanged target files are not written
+     * 
+     * @since 1.3.0
+     */
+    public boolean isKeepUnchangedFiles() {
+        return keepUnchangedFiles;
+    }
+    
 	/**
      * @return the overwriteExistingFile
      */
@@ -440,44 +1730,127 @@ public class XMindToLatexExporter {
     }
     
     
-    private String processTemplate(String template, int level, String text) {
-        Map<String, String> data = new HashMap<String, String>();
-        int maxLevel = getMaxLevel() != -1 ? getMaxLevel() + 1 : templates.size();
-        int inner = level - maxLevel;
-        data.put("text", text);
-        data.put("level", "" + level);
-        data.put("innerLevel", "" + inner);
-        StringBuilder currentIndent = new StringBuilder();
-        currentIndent.append(getIndention(inner));
-        data.put("indent", currentIndent.toString());
-        
-
-        StringWriter writer = new StringWriter();
+    private String processTemplate(ConversionState state, Template template, int level, String text) {
+        state.renderBuffer.getBuffer().setLength(0);
+        try {
+            processTemplate(state, template, level, text, state.renderBuffer);
+        }
+        catch (IOException e) {
+            // a StringWriter does not throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+        return state.renderBuffer.toString();
+    }
+    
+    /**
+     * Renders the given template into the given writer.
+     * 
+     * @param state state of the running conversion
+     * @param template the resolved template
+     * @param level level of the given text
+     * @param text text to render
+     * @param out receives the rendered template
+     * @throws IOException if the rendered template cannot be written
+     * @throws TemplateNotExistsException if the template cannot be processed
+     */
+    private void processTemplate(ConversionState state, Template template, int level, String text, Writer out) throws IOException {
+        TemplateRenderEvent event = new TemplateRenderEvent();
+        event.begin();
+        if (state.statistics == null) {
+            renderTemplate(state, template, level, text, out);
+        }
+        else {
+            state.statistics.beginRender();
+            try {
+                renderTemplate(state, template, level, text, out);
+            }
+            finally {
+                state.statistics.endRender(template.getName());
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.template = template.getName();
+            event.level = level;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Renders the given template into the given writer, see {@link #processTemplate(ConversionState, Template, int, String, Writer)}.
+     */
+    private void renderTemplate(ConversionState state, Template template, int level, String text, Writer out) throws IOException {
+        LevelModel model = state.getLevelModel(level).withText(text);
+        PlainTemplate plain = plainTemplates.get(template);
+        if (plain != null) {
+            plain.render(out, model);
+            return;
+        }
         try {
-            Template t = templateConfig.getTemplate(template);
-            t.process(data, writer);
+            template.process(model, out);
         }
-        catch (Exception e) {
-            throw new TemplateNotExistsException(template);
+        catch (TemplateException e) {
+            TemplateNotExistsException te = new TemplateNotExistsException(template.getName());
+            te.addSuppressed(e);
+            throw te;
         }
-        return writer.getBuffer().toString();
     }
     
     /**
-     * Stores the given <b>content</b> into the configured target file.
-     *  
+     * Stores the given <b>content</b> into the given file like the target file. If unchanged
+     * files are kept, an unchanged file is not written.
+     * 
+     * @param file file to write
      * @param content content to save
-     * @throws IOException either writer {@link IOException}, or if the target file already exists and fore overwrite is not enabled.
+     * @throws IOException either writer {@link IOException}, or if the file already exists and fore overwrite is not enabled.
+     */
+    private void save(File file, String content) throws IOException {
+        ChangedFileOutputStream stream = openTargetStream(file);
+        Writer out = new BufferedWriter(new OutputStreamWriter(stream, Charsets.UTF_8));
+        try {
+            out.write(content);
+        }
+        catch (IOException | RuntimeException e) {
+            stream.abort();
+            throw e;
+        }
+        out.close();
+    }
+    
+    /**
+     * Deletes the chapter files of chapters that have been removed since the previous conversion.
+     * 
+     * @param chapterDirectory the chapter directory
+     * @param chapters number of chapters of the current conversion
+     * @throws IOException if a chapter file cannot be deleted
      */
-    private void save(String content) throws IOException {
-        File tf = getTargetFile();
+    private static void deleteRemovedChapters(File chapterDirectory, int chapters) throws IOException {
+        for (int chapter = chapters + 1;; chapter++) {
+            File chapterFile = getChapterFile(chapterDirectory, chapter);
+            if (!chapterFile.exists()) {
+                return;
+            }
+            if (!chapterFile.delete()) {
+                throw new IOException("Unable to delete the removed chapter " + chapterFile.getAbsolutePath() + ".");
+            }
+        }
+    }
+    
+    /**
+     * Opens a stream on the given target file. Missing parent directories are created.
+     * An existing target file is only replaced when the stream is closed, if unchanged files
+     * are kept, only if its content changed.
+     * 
+     * @param tf the target file
+     * @return a stream on the target file
+     * @throws IOException either stream {@link IOException}, or if the target file already exists and fore overwrite is not enabled.
+     */
+    private ChangedFileOutputStream openTargetStream(File tf) throws IOException {
         if (tf.getParentFile() != null && !tf.getParentFile().exists()) {
             tf.getParentFile().mkdirs();
         }
         if (!tf.exists() || isOverwriteExistingFile()) {
-            PrintWriter pw = new PrintWriter(tf, "UTF-8");
-            pw.write(content);
-            pw.close();
+            return new ChangedFileOutputStream(tf, isKeepUnchangedFiles());
         }
         else {
             throw new FileAlreadyExistsException(tf.getAbsolutePath(), "", "If you want to overwrite existing files use param " + CliParameters.FORCE);
@@ -487,24 +1860,13 @@ public class XMindToLatexExporter {
    
 
     /**
-     * @param xMindSource the xMindSource to set, must not be null
+     * @param xMindSource the xMindSource to open, must not be null
+     * @return a new stream of the XMind content that has to be closed by the caller
      * 
      * @throws ZipException if a given XMind file may not be extracted.
      * @throws IOException 
      */
     private InputStream setxMindSourceInputStream(File xMindSource) throws ZipException, IOException {
-        Preconditions.checkNotNull(xMindSource);
-        File usedFile = xMindSource;
-        if (!usedFile.exists()) {
-            throw new FileNotFoundException("The given input file " + xMindSource+ " does not exist!");
-        }
-        if (usedFile.getName().endsWith(".xmind")) {
-            ZipFile zip = new ZipFile(usedFile);
-            FileHeader fh = zip.getFileHeader("content.xml");
-            return zip.getInputStream(fh);
-        }
-        else {
-            return FileUtils.openInputStream(usedFile);
-        }
+        return XMindContentReader.open(xMindSource);
     }
 }
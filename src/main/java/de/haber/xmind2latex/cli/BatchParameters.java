@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex.cli;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import de.haber.xmind2latex.XMindToLatexExporter.Builder;
+
+/**
+ * Result of {@link CliParameters#buildBatch(String[])}: one configured {@link Builder} per input
+ * file and the number of conversions that may run in parallel.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public final class BatchParameters {
+    
+    private final List<Builder> builders;
+    
+    private final int jobs;
+    
+    private final boolean watch;
+    
+    /**
+     * @param builders configured builders, must not be null or empty
+     * @param jobs number of parallel conversions, has to be > 0
+     * @param watch true, if the input files are to be watched for changes
+     */
+    BatchParameters(List<Builder> builders, int jobs, boolean watch) {
+        checkNotNull(builders);
+        checkArgument(!builders.isEmpty());
+        checkArgument(jobs > 0);
+        this.builders = ImmutableList.copyOf(builders);
+        this.jobs = jobs;
+        this.watch = watch;
+    }
+    
+    /**
+     * @return one configured builder per input file in the order of the input parameters
+     */
+    public List<Builder> getBuilders() {
+        return builders;
+    }
+    
+    /**
+     * @return the number of conversions that may run in parallel
+     */
+    public int getJobs() {
+        return jobs;
+    }
+    
+    /**
+     * @return true, if the input files are to be converted again whenever they change
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+}
@@ -19,14 +19,24 @@
  */
 package de.haber.xmind2latex.cli;
 
+import static de.haber.xmind2latex.cli.CliParameters.CACHE;
 import static de.haber.xmind2latex.cli.CliParameters.ENVIRONMENT;
 import static de.haber.xmind2latex.cli.CliParameters.FORCE;
 import static de.haber.xmind2latex.cli.CliParameters.HELP;
 import static de.haber.xmind2latex.cli.CliParameters.INPUT;
+import static de.haber.xmind2latex.cli.CliParameters.JOBS;
+import static de.haber.xmind2latex.cli.CliParameters.KEEP_UNCHANGED;
 import static de.haber.xmind2latex.cli.CliParameters.LEVEL;
+import static de.haber.xmind2latex.cli.CliParameters.MULTI_FILE;
 import static de.haber.xmind2latex.cli.CliParameters.OUTPUT;
+import static de.haber.xmind2latex.cli.CliParameters.PARSER;
+import static de.haber.xmind2latex.cli.CliParameters.RENDER_THREADS;
+import static de.haber.xmind2latex.cli.CliParameters.SKIP_UNCHANGED;
+import static de.haber.xmind2latex.cli.CliParameters.SPLIT_LEVEL;
+import static de.haber.xmind2latex.cli.CliParameters.STATISTICS;
 import static de.haber.xmind2latex.cli.CliParameters.TEMPLATE_LEVEL;
 import static de.haber.xmind2latex.cli.CliParameters.VERSION;
+import static de.haber.xmind2latex.cli.CliParameters.WATCH;
 
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
@@ -62,13 +72,22 @@ class CliOptionBuilder {
     protected static Options getOptions() {
         Options o = new Options();
         
-        o.addOption(OptionBuilder.withArgName("input file")
+        o.addOption(OptionBuilder.withArgName("input files")
                                 .withLongOpt("input")
-                                .withDescription("Required input file name.")
-                                .hasArg(true)
+                                .withDescription("Required input file names. Directories are replaced by the XMind files they contain, " +
+                                        "glob patterns like \"maps/**/*.xmind\" by the matching files.")
+                                .hasArgs()
                                 .isRequired(false)
                                 .withType(PatternOptionBuilder.FILE_VALUE)
                                 .create(INPUT));
+        o.addOption(OptionBuilder.withArgName("jobs")
+                                .withLongOpt("jobs")
+                                .withDescription("Number of input files that are converted in parallel (optional). " +
+                                        "Default is the number of available processors.")
+                                .hasArg()
+                                .isRequired(false)
+                                .withType(PatternOptionBuilder.NUMBER_VALUE)
+                                .create(JOBS));
         o.addOption(OptionBuilder.withArgName("force")
                                 .withLongOpt("force")
                                 .withDescription("Force overwrite existing files (optional).")
@@ -77,7 +96,8 @@ class CliOptionBuilder {
                                 .create(FORCE));
         o.addOption(OptionBuilder.withArgName("output file")
                                 .withLongOpt("output")
-                                .withDescription("Output file name (optional). Default output file is \"<input file>.tex.\"")
+                                .withDescription("Output file name (optional). Default output file is \"<input file>.tex.\" " +
+                                        "If several input files are given, this is the output directory.")
                                 .hasArg()
                                 .isRequired(false)
                                 .withType(PatternOptionBuilder.FILE_VALUE)
@@ -112,12 +132,80 @@ class CliOptionBuilder {
                                  .hasArgs(2)
                                  .isRequired(false)
                                  .create(LEVEL));
+        o.addOption(OptionBuilder.withArgName("stax|dom")
+                                 .withLongOpt("parser")
+                                 .withDescription("Parser used to read the input (optional). Default is \"stax\", which renders " +
+                                         "the input while it is read. \"dom\" reads the complete input before rendering.")
+                                 .hasArg()
+                                 .isRequired(false)
+                                 .create(PARSER));
+        o.addOption(OptionBuilder.withArgName("threads")
+                                 .withLongOpt("render-threads")
+                                 .withDescription("Number of threads that render the subtrees of a single input in parallel (optional). " +
+                                         "Default is 1, which renders serially, or the number of available processors, if parameter m is used. " +
+                                         "Cannot be combined with parameter c.")
+                                 .hasArg()
+                                 .isRequired(false)
+                                 .withType(PatternOptionBuilder.NUMBER_VALUE)
+                                 .create(RENDER_THREADS));
+        o.addOption(OptionBuilder.withArgName("level")
+                                 .withLongOpt("split-level")
+                                 .withDescription("Topic level whose subtrees are rendered in parallel, if parameter r is used (optional). " +
+                                         "Default is 2, the main branches of each sheet.")
+                                 .hasArg()
+                                 .isRequired(false)
+                                 .withType(PatternOptionBuilder.NUMBER_VALUE)
+                                 .create(SPLIT_LEVEL));
         o.addOption(OptionBuilder.withArgName("version")
                                  .withLongOpt("version")
                                  .withDescription("Prints the version.")
                                  .hasArg(false)
                                  .isRequired(false)
                                  .create(VERSION));
+        o.addOption(OptionBuilder.withArgName("cache")
+                                 .withLongOpt("cache")
+                                 .withDescription("Stores rendered topics in a cache file next to the output file, " +
+                                         "unchanged topics are not rendered again (optional).")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(CACHE));
+        o.addOption(OptionBuilder.withArgName("keep-unchanged")
+                                 .withLongOpt("keep-unchanged")
+                                 .withDescription("Leaves existing output files untouched, if their content did not change (optional). " +
+                                         "Existing output files are only written, if parameter f is used.")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(KEEP_UNCHANGED));
+        o.addOption(OptionBuilder.withArgName("multi-file")
+                                 .withLongOpt("multi-file")
+                                 .withDescription("Writes each chapter, i.e., each topic of level 1, into a file of its own (optional). " +
+                                         "The chapter files are written in parallel into the directory \"<output file>-chapters\", " +
+                                         "the output file includes them. Cannot be combined with parameter c.")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(MULTI_FILE));
+        o.addOption(OptionBuilder.withArgName("skip-unchanged")
+                                 .withLongOpt("skip-unchanged")
+                                 .withDescription("Skips XMind input files whose content, templates and output file did not " +
+                                         "change since the previous conversion (optional). A stamp file is stored next to the output file.")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(SKIP_UNCHANGED));
+        o.addOption(OptionBuilder.withArgName("stats")
+                                 .withLongOpt("stats")
+                                 .withDescription("Prints statistics of each conversion (optional): the time of the phases unzip, " +
+                                         "parse, render and write, the topics per level, renders and render time per template, " +
+                                         "the output size and the peak heap usage.")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(STATISTICS));
+        o.addOption(OptionBuilder.withArgName("watch")
+                                 .withLongOpt("watch")
+                                 .withDescription("Keeps running after the conversion and converts input files again whenever " +
+                                         "they change (optional). Requires -f, output files are overwritten on changes.")
+                                 .hasArg(false)
+                                 .isRequired(false)
+                                 .create(WATCH));
         return o;
     }
 }
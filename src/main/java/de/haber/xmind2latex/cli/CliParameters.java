@@ -20,8 +20,12 @@
 package de.haber.xmind2latex.cli;
 
 import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -32,8 +36,12 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import de.haber.xmind2latex.ParserType;
+import de.haber.xmind2latex.XMindTemplateLoader;
 import de.haber.xmind2latex.XMindToLatexExporter;
 import de.haber.xmind2latex.XMindToLatexExporter.Builder;
 import de.haber.xmind2latex.help.ConfigurationException;
@@ -59,6 +67,10 @@ public class CliParameters {
         
     }
     
+    public static final char CACHE = 'c';
+    
+    public static final char SPLIT_LEVEL = 'd';
+    
     public static final char ENVIRONMENT = 'e';
     
     public static final char FORCE = 'f';
@@ -67,14 +79,30 @@ public class CliParameters {
     
     public static final char INPUT = 'i';
     
+    public static final char JOBS = 'j';
+    
+    public static final char KEEP_UNCHANGED = 'k';
+    
     public static final char LEVEL = 'l';
     
+    public static final char MULTI_FILE = 'm';
+    
     public static final char OUTPUT = 'o';
     
+    public static final char PARSER = 'p';
+    
+    public static final char RENDER_THREADS = 'r';
+    
+    public static final char STATISTICS = 's';
+    
     public static final char TEMPLATE_LEVEL = 't';
     
+    public static final char SKIP_UNCHANGED = 'u';
+    
     public static final char VERSION = 'v';
     
+    public static final char WATCH = 'w';
+    
     private static final Options options = CliOptionBuilder.getOptions();
     
     /**
@@ -112,11 +140,80 @@ public class CliParameters {
      * 
      * @return A created {@link XMindToLatexExporter} or null, if no {@link CliParameters#INPUT} parameter is used.
      * 
-     * @throws ParseException, NumberFormatException for invalid arguments
+     * @throws ParseException, NumberFormatException for invalid arguments, or if the {@link CliParameters#INPUT}
+     * parameter matches more than one input file
      * @throws ConfigurationException for invalid input files
      * @throws IllegalArgumentException if the given input file does not exist
      */
     public static XMindToLatexExporter build(String[] args) throws ParseException {
+        BatchParameters batch = buildBatch(args);
+        if (batch == null) {
+            return null;
+        }
+        List<Builder> builders = batch.getBuilders();
+        if (builders.size() > 1) {
+            throw new ParseException("Parameter -" + INPUT + " matches " + builders.size() + " input files, but a single input file is expected.");
+        }
+        return builders.get(0).build();
+    }
+    
+    /**
+     * Creates {@link Builder}s for all input files that are matched by the given arguments. The 
+     * {@link CliParameters#INPUT} parameter accepts several files, directories and glob patterns.
+     * If more than one input file is matched, the {@link CliParameters#OUTPUT} parameter is used
+     * as output directory.
+     * 
+     * @param args Arguments to configure the {@link XMindToLatexExporter}s.
+     * 
+     * @return the configured builders and the number of parallel jobs, or null, if no 
+     * {@link CliParameters#INPUT} parameter is used.
+     * 
+     * @throws ParseException, NumberFormatException for invalid arguments
+     * @throws IllegalArgumentException if a given input file does not exist
+     * 
+     * @since 1.3.0
+     */
+    public static BatchParameters buildBatch(String[] args) throws ParseException {
+        return buildBatch(args, System.out);
+    }
+    
+    /**
+     * Creates {@link Builder}s for all input files that are matched by the given arguments,
+     * see {@link #buildBatch(String[])}. Help and version are printed to the given stream.
+     * 
+     * @param args Arguments to configure the {@link XMindToLatexExporter}s.
+     * @param out receives help and version messages
+     * 
+     * @return the configured builders and the number of parallel jobs, or null, if no 
+     * {@link CliParameters#INPUT} parameter is used.
+     * 
+     * @throws ParseException, NumberFormatException for invalid arguments
+     * @throws IllegalArgumentException if a given input file does not exist
+     * 
+     * @since 1.3.0
+     */
+    public static BatchParameters buildBatch(String[] args, PrintStream out) throws ParseException {
+        return buildBatch(args, out, null);
+    }
+    
+    /**
+     * Creates {@link Builder}s for all input files that are matched by the given arguments,
+     * see {@link #buildBatch(String[])}. Relative input, output and template files are resolved
+     * against the given directory, e.g., the working directory of a {@link de.haber.xmind2latex.Client}.
+     * 
+     * @param args Arguments to configure the {@link XMindToLatexExporter}s.
+     * @param out receives help and version messages
+     * @param directory directory relative files are resolved against, null for the working directory
+     * 
+     * @return the configured builders and the number of parallel jobs, or null, if no 
+     * {@link CliParameters#INPUT} parameter is used.
+     * 
+     * @throws ParseException, NumberFormatException for invalid arguments
+     * @throws IllegalArgumentException if a given input file does not exist
+     * 
+     * @since 1.3.0
+     */
+    public static BatchParameters buildBatch(String[] args, PrintStream out, File directory) throws ParseException {
         CommandLineParser parser = new BasicParser();
         CommandLine cmd = parser.parse(options, args, false);
         
@@ -126,106 +223,253 @@ public class CliParameters {
         }
         
         if (cmd.hasOption(VERSION)) {
-            printVersion();
+            printVersion(out);
         }
         
         CliParameters.validateNumberOfArguments(cmd, INPUT, options);
         if (cmd.hasOption(INPUT)) {
-            File in = new File(cmd.getOptionValue(INPUT));
-            Builder builder = new Builder(in);            
-            if (cmd.hasOption(FORCE)) {
-                CliParameters.validateNumberOfArguments(cmd, FORCE, options);
-                builder.overwritesExistingFiles(true);
+            String[] inputValues = cmd.getOptionValues(INPUT).clone();
+            for (int i = 0; i < inputValues.length; i++) {
+                inputValues[i] = resolve(inputValues[i], directory);
+            }
+            List<File> inputs = InputFiles.resolve(inputValues);
+            
+            int jobs = Runtime.getRuntime().availableProcessors();
+            if (cmd.hasOption(JOBS)) {
+                CliParameters.validateNumberOfArguments(cmd, JOBS, options);
+                jobs = parsePositive(cmd, JOBS);
+            }
+            
+            if (cmd.hasOption(HELP)) {
+                CliParameters.validateNumberOfArguments(cmd, HELP, options);
+                
+                showHelp(out);
             }
             
-            File out;
+            File output = null;
             if (cmd.hasOption(OUTPUT)) {
                 CliParameters.validateNumberOfArguments(cmd, OUTPUT, options);
-                out = new File(cmd.getOptionValue(OUTPUT));
-                builder.withTargetFile(out);
+                output = new File(resolve(cmd.getOptionValue(OUTPUT), directory));
             }
             
-            if (cmd.hasOption(TEMPLATE_LEVEL)) {
-                CliParameters.validateNumberOfArguments(cmd, TEMPLATE_LEVEL, options);
-                
-                String level = cmd.getOptionValue(TEMPLATE_LEVEL);
-                try {
-                    int levelAsInt = Integer.parseInt(level);
-                    if (levelAsInt < 0) {
-                        throw new NumberFormatException();
+            List<Builder> builders = Lists.newArrayListWithCapacity(inputs.size());
+            Set<File> targets = Sets.newHashSet();
+            for (File in : inputs) {
+                Builder builder = new Builder(in);
+                if (output != null && inputs.size() > 1) {
+                    File target = new File(output, in.getName() + ".tex");
+                    if (!targets.add(target)) {
+                        throw new ParseException("Several input files are converted to " + target + ".");
                     }
-                    builder.withMaxLevel(levelAsInt);
+                    builder.withTargetFile(target);
+                }
+                else if (output != null) {
+                    builder.withTargetFile(output);
+                }
+                configure(cmd, builder, directory);
+                builders.add(builder);
+            }
+            if (cmd.hasOption(WATCH) && !cmd.hasOption(FORCE)) {
+                // output files are overwritten on every change
+                throw new ParseException("Parameter -" + WATCH + " requires parameter -" + FORCE + ".");
+            }
+            return new BatchParameters(builders, jobs, cmd.hasOption(WATCH));
+        }
+        else {
+            return null;
+        }
+    }
+    
+    /**
+     * Applies all parameters that do not concern input and output files to the given builder.
+     * 
+     * @param cmd the concrete {@link CommandLine}
+     * @param builder builder to configure
+     * @param directory directory relative template files are resolved against, null for the working directory
+     * @throws ParseException for invalid arguments
+     */
+    private static void configure(CommandLine cmd, Builder builder, File directory) throws ParseException {
+        if (cmd.hasOption(CACHE)) {
+            CliParameters.validateNumberOfArguments(cmd, CACHE, options);
+            builder.withRenderCache(true);
+        }
+        
+        if (cmd.hasOption(FORCE)) {
+            CliParameters.validateNumberOfArguments(cmd, FORCE, options);
+            builder.overwritesExistingFiles(true);
+        }
+        
+        if (cmd.hasOption(KEEP_UNCHANGED)) {
+            CliParameters.validateNumberOfArguments(cmd, KEEP_UNCHANGED, options);
+            builder.keepsUnchangedFiles(true);
+        }
+        
+        if (cmd.hasOption(MULTI_FILE)) {
+            CliParameters.validateNumberOfArguments(cmd, MULTI_FILE, options);
+            builder.writesChapterFiles(true);
+        }
+        
+        if (cmd.hasOption(SKIP_UNCHANGED)) {
+            CliParameters.validateNumberOfArguments(cmd, SKIP_UNCHANGED, options);
+            builder.skipsUnchangedInputs(true);
+        }
+        
+        if (cmd.hasOption(STATISTICS)) {
+            CliParameters.validateNumberOfArguments(cmd, STATISTICS, options);
+            builder.collectsStatistics(true);
+        }
+        
+        if (cmd.hasOption(PARSER)) {
+            CliParameters.validateNumberOfArguments(cmd, PARSER, options);
+            
+            String parserType = cmd.getOptionValue(PARSER);
+            try {
+                builder.withParser(ParserType.valueOf(parserType.toUpperCase(Locale.ENGLISH)));
+            }
+            catch (IllegalArgumentException e) {
+                ParseException ex = new ParseException("The argument of option " + PARSER + " has to be one of stax or dom.");
+                ex.addSuppressed(e);
+                throw ex;
+            }
+        }
+        
+        if (cmd.hasOption(RENDER_THREADS)) {
+            CliParameters.validateNumberOfArguments(cmd, RENDER_THREADS, options);
+            builder.withRenderThreads(parsePositive(cmd, RENDER_THREADS));
+        }
+        
+        if (cmd.hasOption(SPLIT_LEVEL)) {
+            CliParameters.validateNumberOfArguments(cmd, SPLIT_LEVEL, options);
+            builder.withSplitLevel(parsePositive(cmd, SPLIT_LEVEL));
+        }
+        
+        if (cmd.hasOption(TEMPLATE_LEVEL)) {
+            CliParameters.validateNumberOfArguments(cmd, TEMPLATE_LEVEL, options);
+            
+            String level = cmd.getOptionValue(TEMPLATE_LEVEL);
+            try {
+                int levelAsInt = Integer.parseInt(level);
+                if (levelAsInt < 0) {
+                    throw new NumberFormatException();
+                }
+                builder.withMaxLevel(levelAsInt);
+            }
+            catch (NumberFormatException e) {
+                ParseException ex = new ParseException("The level argument of option " + TEMPLATE_LEVEL + " has to be a positive integer.");
+                ex.addSuppressed(e);
+                throw ex;
+            }
+            
+        }
+        
+        if (cmd.hasOption(ENVIRONMENT)) {
+            CliParameters.validateNumberOfArguments(cmd, ENVIRONMENT, options);
+            
+            String[] env = cmd.getOptionValues(ENVIRONMENT);
+            for (int i = 0; i + 2 < env.length; i = i + 3) {
+                String level = env[i];
+                String start = resolveTemplate(env[i + 1], directory);
+                String end = resolveTemplate(env[i + 2], directory);
+                try {
+                    int levelAsInt = Integer.parseInt(level);      
+                    builder.withEnvironmentTemplates(levelAsInt, start, end);
                 }
                 catch (NumberFormatException e) {
-                    ParseException ex = new ParseException("The level argument of option " + TEMPLATE_LEVEL + " has to be a positive integer.");
+                    ParseException ex = new ParseException("The level argument of option " + ENVIRONMENT + " has to be an integer.");
                     ex.addSuppressed(e);
                     throw ex;
                 }
-                
-            }
-            if (cmd.hasOption(HELP)) {
-                CliParameters.validateNumberOfArguments(cmd, HELP, options);
-                
-                showHelp();
             }
+        }
+        if (cmd.hasOption(LEVEL)) {
+            CliParameters.validateNumberOfArguments(cmd, LEVEL, options);
             
-            if (cmd.hasOption(ENVIRONMENT)) {
-                CliParameters.validateNumberOfArguments(cmd, ENVIRONMENT, options);
-                
-                String[] env = cmd.getOptionValues(ENVIRONMENT);
-                for (int i = 0; i + 2 < env.length; i = i + 3) {
-                    String level = env[i];
-                    String start = env[i + 1];
-                    String end = env[i + 2];
-                    try {
-                        int levelAsInt = Integer.parseInt(level);      
-                        builder.withEnvironmentTemplates(levelAsInt, start, end);
-                    }
-                    catch (NumberFormatException e) {
-                        ParseException ex = new ParseException("The level argument of option " + ENVIRONMENT + " has to be an integer.");
-                        ex.addSuppressed(e);
-                        throw ex;
-                    }
+            String[] tmp = cmd.getOptionValues(LEVEL);
+            
+            for (int i = 0; i + 1 < tmp.length; i = i + 2) {
+                String level = tmp[i];
+                String template = resolveTemplate(tmp[i + 1], directory);
+                try {
+                    int levelAsInt = Integer.parseInt(level);
+                    builder.withTemplate(levelAsInt, template);
                 }
-            }
-            if (cmd.hasOption(LEVEL)) {
-                CliParameters.validateNumberOfArguments(cmd, LEVEL, options);
-                
-                String[] tmp = cmd.getOptionValues(LEVEL);
-                
-                for (int i = 0; i + 1 < tmp.length; i = i + 2) {
-                    String level = tmp[i];
-                    String template = tmp[i + 1];
-                    try {
-                        int levelAsInt = Integer.parseInt(level);
-                        builder.withTemplate(levelAsInt, template);
-                    }
-                    catch (NumberFormatException e) {
-                        ParseException ex = new ParseException("The level argument of option " + LEVEL + " has to be an integer.");
-                        ex.addSuppressed(e);
-                        throw ex;
-                    }
+                catch (NumberFormatException e) {
+                    ParseException ex = new ParseException("The level argument of option " + LEVEL + " has to be an integer.");
+                    ex.addSuppressed(e);
+                    throw ex;
                 }
             }
-            return builder.build();
         }
-        else {
-            return null;
+    }
+    
+    /**
+     * @param path a file name or glob pattern
+     * @param directory directory the given path is relative to, null for the working directory
+     * @return the given path resolved against the given directory
+     */
+    private static String resolve(String path, File directory) {
+        if (directory == null || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(directory, path).getPath();
+    }
+    
+    /**
+     * @param template a qualified template name or a template file
+     * @param directory directory relative template files are resolved against, null for the working directory
+     * @return the given template, a template file resolved against the given directory
+     */
+    private static String resolveTemplate(String template, File directory) {
+        return template.endsWith(XMindTemplateLoader.FM_FILE_EXTENSION) ? resolve(template, directory) : template;
+    }
+    
+    /**
+     * @param cmd the concrete {@link CommandLine}
+     * @param param parameter with a single argument
+     * @return the argument of the given parameter
+     * @throws ParseException if the argument is not a positive integer
+     */
+    private static int parsePositive(CommandLine cmd, char param) throws ParseException {
+        try {
+            int value = Integer.parseInt(cmd.getOptionValue(param));
+            if (value < 1) {
+                throw new NumberFormatException();
+            }
+            return value;
+        }
+        catch (NumberFormatException e) {
+            ParseException ex = new ParseException("The argument of option " + param + " has to be a positive integer.");
+            ex.addSuppressed(e);
+            throw ex;
         }
     }
     
-    private static void printVersion() {
+    private static void printVersion(PrintStream out) {
         List<Optional<String>> props = PropertyLoader.getProperties("xmind2latex-app.properties", "app.version", "app.name");
         String name = props.get(1).or("xmind2latex");
         String version = props.get(0).or("unknown");
-        System.out.println(name + " version \"" + version + "\"");
+        out.println(name + " version \"" + version + "\"");
     }
 
     /**
      * 
      */
     public static void showHelp() {
+        showHelp(System.out);
+    }
+    
+    /**
+     * Prints the help message to the given stream.
+     * 
+     * @param out receives the help message
+     * 
+     * @since 1.3.0
+     */
+    public static void showHelp(PrintStream out) {
         HelpFormatter formatter = new HelpFormatter();
-        formatter.printHelp("xmind2latex", options);
+        PrintWriter writer = new PrintWriter(out);
+        formatter.printHelp(writer, formatter.getWidth(), "xmind2latex", null, options, 
+                formatter.getLeftPadding(), formatter.getDescPadding(), null);
+        writer.flush();
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.ParseException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Resolves the values of the {@link CliParameters#INPUT} parameter to input files.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+final class InputFiles {
+    
+    /** File extension of XMind files that are collected from directories. */
+    private static final String XMIND_FILE_EXTENSION = ".xmind";
+    
+    /** Characters that mark a value as glob pattern. */
+    private static final String GLOB_CHARACTERS = "*?[{";
+    
+    /**
+     * Private default constructor to prevent utility class instantiation.
+     */
+    private InputFiles() {
+        
+    }
+    
+    /**
+     * Resolves the given values in the given order. Files are used as they are, directories are
+     * replaced by the XMind files they directly contain, and glob patterns are replaced by all
+     * regular files they match. Files that are matched several times are only used once.
+     * 
+     * @param values values of the input parameter
+     * @return the resolved input files
+     * @throws ParseException if a directory or glob pattern does not match any file
+     */
+    static List<File> resolve(String[] values) throws ParseException {
+        Set<File> result = Sets.newLinkedHashSet();
+        for (String value : values) {
+            List<File> files;
+            if (isGlob(value)) {
+                files = resolveGlob(value);
+            }
+            else if (new File(value).isDirectory()) {
+                files = resolveDirectory(new File(value));
+            }
+            else {
+                files = ImmutableList.of(new File(value));
+            }
+            if (files.isEmpty()) {
+                throw new ParseException("No input files found for " + value + ".");
+            }
+            for (File f : files) {
+                result.add(f.toPath().toAbsolutePath().normalize().toFile());
+            }
+        }
+        return ImmutableList.copyOf(result);
+    }
+    
+    private static boolean isGlob(String value) {
+        for (char c : GLOB_CHARACTERS.toCharArray()) {
+            if (value.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static List<File> resolveDirectory(File directory) throws ParseException {
+        List<File> result = Lists.newArrayList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), "*" + XMIND_FILE_EXTENSION)) {
+            for (Path p : stream) {
+                if (Files.isRegularFile(p)) {
+                    result.add(p.toFile());
+                }
+            }
+        }
+        catch (IOException e) {
+            ParseException ex = new ParseException("Unable to read input directory " + directory + ".");
+            ex.addSuppressed(e);
+            throw ex;
+        }
+        Collections.sort(result);
+        return result;
+    }
+    
+    /**
+     * Walks the directory that precedes the first glob character of the given pattern and 
+     * collects all regular files that match the pattern.
+     */
+    private static List<File> resolveGlob(String pattern) throws ParseException {
+        String normalized = pattern.replace(File.separatorChar, '/');
+        int firstGlob = normalized.length();
+        for (char c : GLOB_CHARACTERS.toCharArray()) {
+            int i = normalized.indexOf(c);
+            if (i >= 0 && i < firstGlob) {
+                firstGlob = i;
+            }
+        }
+        int baseEnd = normalized.lastIndexOf('/', firstGlob);
+        Path base = baseEnd < 0 ? Paths.get("") : Paths.get(normalized.substring(0, baseEnd + 1));
+        String remainder = normalized.substring(baseEnd + 1);
+        int maxDepth = remainder.contains("**") ? Integer.MAX_VALUE : remainder.split("/").length;
+        
+        if (!Files.isDirectory(base.toAbsolutePath())) {
+            return ImmutableList.of();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + normalized);
+        try (Stream<Path> paths = Files.walk(base, maxDepth)) {
+            return paths.filter(p -> Files.isRegularFile(p) && matcher.matches(p))
+                        .map(Path::toFile)
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+        catch (IOException e) {
+            ParseException ex = new ParseException("Unable to resolve input pattern " + pattern + ".");
+            ex.addSuppressed(e);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * #%L
+ * XMind to Latex
+ * %%
+ * Copyright (C) 2014 Arne Haber
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.haber.xmind2latex;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Generates synthetic XMind mind maps of configurable size and shape for stress and scaling
+ * tests. The topics of each sheet form a balanced tree with the configured fan-out that is
+ * not deeper than the configured depth. Titles and notes contain characters that have to be
+ * escaped in XML as well as non ASCII characters. Attachments are stored in the XMind archive
+ * and referenced by topics, they are never inflated by the {@link XMindToLatexExporter}.
+ * All generated content only depends on the configuration, including the seed.
+ *
+ * <br>
+ * <br>
+ * May be used from the command line, see {@link #main(String[])}.
+ *
+ * <br>
+ * <br>
+ *
+ * @author  (last commit) $Author$
+ * @version $Date$<br>
+ *          $Revision$
+ * @since 1.3.0
+ */
+public class MindMapGenerator {
+
+    /**
+     * Builder to configure a {@link MindMapGenerator}.
+     */
+    public static class Builder {
+
+        private int topics = 1000;
+
+        private int fanOut = 0;
+
+        private int depth = 5;
+
+        private int titleLength = 40;
+
+        private int sheets = 1;
+
+        private int noteLength = 0;
+
+        private int attachments = 0;
+
+        private int attachmentSize = 0;
+
+        private long seed = 0;
+
+        /**
+         * @return a new {@link MindMapGenerator} with the configured parameters
+         * @throws IllegalArgumentException if the configured topics do not fit into trees of the
+         * configured fan-out and depth
+         */
+        public MindMapGenerator build() {
+            int perSheet = (topics + sheets - 1) / sheets;
+            int f = fanOut;
+            if (f == 0) {
+                f = 1;
+                while (capacity(f, depth) < perSheet) {
+                    f++;
+                }
+            }
+            checkArgument(capacity(f, depth) >= perSheet, "%s topics per sheet do not fit into a tree with fan-out %s and depth %s.", perSheet, f, depth);
+            checkArgument(sheets <= topics, "More sheets than topics.");
+            checkArgument(attachments <= topics, "More attachments than topics.");
+            return new MindMapGenerator(this, f);
+        }
+
+        /**
+         * @param topics total number of topics of all sheets, must be at least the number of sheets
+         * @return this builder
+         */
+        public Builder withTopics(int topics) {
+            checkArgument(topics > 0, "The number of topics must be positive.");
+            this.topics = topics;
+            return this;
+        }
+
+        /**
+         * @param fanOut maximal number of children of a topic, 0 selects the smallest fan-out
+         * that fits the topics into the configured depth
+         * @return this builder
+         */
+        public Builder withFanOut(int fanOut) {
+            checkArgument(fanOut >= 0, "The fan-out must not be negative.");
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        /**
+         * @param depth maximal depth of the topics, the root topic of a sheet has depth 1
+         * @return this builder
+         */
+        public Builder withDepth(int depth) {
+            checkArgument(depth > 0, "The depth must be positive.");
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * @param titleLength number of characters of each topic title
+         * @return this builder
+         */
+        public Builder withTitleLength(int titleLength) {
+            checkArgument(titleLength > 0, "The title length must be positive.");
+            this.titleLength = titleLength;
+            return this;
+        }
+
+        /**
+         * @param sheets number of sheets, the topics are distributed evenly
+         * @return this builder
+         */
+        public Builder withSheets(int sheets) {
+            checkArgument(sheets > 0, "The number of sheets must be positive.");
+            this.sheets = sheets;
+            return this;
+        }
+
+        /**
+         * @param noteLength number of characters of the note of each topic, 0 adds no notes
+         * @return this builder
+         */
+        public Builder withNotes(int noteLength) {
+            checkArgument(noteLength >= 0, "The note length must not be negative.");
+            this.noteLength = noteLength;
+            return this;
+        }
+
+        /**
+         * @param attachments number of topics with an attachment
+         * @param attachmentSize size of each attachment in bytes
+         * @return this builder
+         */
+        public Builder withAttachments(int attachments, int attachmentSize) {
+            checkArgument(attachments >= 0, "The number of attachments must not be negative.");
+            checkArgument(attachmentSize >= 0, "The attachment size must not be negative.");
+            this.attachments = attachments;
+            this.attachmentSize = attachmentSize;
+            return this;
+        }
+
+        /**
+         * @param seed seed of the generated titles, notes and attachments
+         * @return this builder
+         */
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    /** Words of titles and notes, including characters that are escaped in XML. */
+    private static final String[] WORDS = {
+        "mind", "map", "chapter", "section", "R&D", "a<b", "\"quoted\"", "it's", "über", "naïve", "latex", "topic",
+        "export", "template", "level", "Größe", "x>y", "note"
+    };
+
+    private static final String TIMESTAMP = "1400000000000";
+
+    private final int topics;
+
+    private final int fanOut;
+
+    private final int depth;
+
+    private final int titleLength;
+
+    private final int sheets;
+
+    private final int noteLength;
+
+    private final int attachments;
+
+    private final int attachmentSize;
+
+    private final long seed;
+
+    /** number of the next generated topic */
+    private int topicCounter;
+
+    private Random random;
+
+    private MindMapGenerator(Builder builder, int fanOut) {
+        this.topics = builder.topics;
+        this.fanOut = fanOut;
+        this.depth = builder.depth;
+        this.titleLength = builder.titleLength;
+        this.sheets = builder.sheets;
+        this.noteLength = builder.noteLength;
+        this.attachments = builder.attachments;
+        this.attachmentSize = builder.attachmentSize;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * @return the number of topics that are contained in a full tree of the given fan-out and depth
+     */
+    private static long capacity(int fanOut, int depth) {
+        long count = 0;
+        long level = 1;
+        for (int i = 0; i < depth && count < Integer.MAX_VALUE; i++) {
+            count += level;
+            level *= fanOut;
+        }
+        return count;
+    }
+
+    /**
+     * @return the total number of generated topics
+     */
+    public int getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return the maximal depth of the generated topics
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the fan-out of the generated trees
+     */
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * @return the number of generated sheets
+     */
+    public int getSheets() {
+        return sheets;
+    }
+
+    /**
+     * Writes an XMind file, if the name of the given file ends with ".xmind", otherwise only
+     * the content.xml of the mind map.
+     *
+     * @param target file to write, an existing file is overwritten
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File target) throws IOException {
+        checkNotNull(target);
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+        try {
+            if (target.getName().endsWith(XMindContentReader.XMIND_FILE_EXTENSION)) {
+                writeXMind(out);
+            }
+            else {
+                writeContent(out);
+            }
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the mind map as XMind archive with a manifest, the content.xml and the attachments.
+     *
+     * @param out receives the archive, is not closed
+     * @throws IOException if the archive cannot be written
+     */
+    public void writeXMind(OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+        Writer manifest = new OutputStreamWriter(zip, Charsets.UTF_8);
+        manifest.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        manifest.write("<manifest xmlns=\"urn:xmind:xmap:xmlns:manifest:1.0\">");
+        manifest.write("<file-entry full-path=\"" + XMindContentReader.CONTENT_XML + "\" media-type=\"text/xml\"/>");
+        for (int i = 0; i < attachments; i++) {
+            manifest.write("<file-entry full-path=\"" + getAttachmentPath(i) + "\" media-type=\"\"/>");
+        }
+        manifest.write("</manifest>");
+        manifest.flush();
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry(XMindContentReader.CONTENT_XML));
+        writeContent(zip);
+        zip.closeEntry();
+
+        // random payloads do not compress, like the images and documents attached in practice
+        Random payload = new Random(seed);
+        byte[] bytes = new byte[attachmentSize];
+        for (int i = 0; i < attachments; i++) {
+            zip.putNextEntry(new ZipEntry(getAttachmentPath(i)));
+            payload.nextBytes(bytes);
+            zip.write(bytes);
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    /**
+     * Writes the content.xml of the mind map.
+     *
+     * @param out receives the content, is not closed
+     * @throws IOException if the content cannot be written
+     */
+    public void writeContent(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8));
+        random = new Random(seed);
+        topicCounter = 0;
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        writer.write("<xmap-content xmlns=\"urn:xmind:xmap:xmlns:content:2.0\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" "
+                + "timestamp=\"" + TIMESTAMP + "\" version=\"2.0\">");
+        int remaining = topics;
+        for (int i = 0; i < sheets; i++) {
+            int sheetTopics = remaining / (sheets - i);
+            remaining -= sheetTopics;
+            writer.write("<sheet id=\"sheet" + i + "\" timestamp=\"" + TIMESTAMP + "\">");
+            writer.write("<title>Sheet " + (i + 1) + "</title>");
+            writeTopic(writer, sheetTopics, 1);
+            writer.write("</sheet>");
+        }
+        writer.write("</xmap-content>");
+        writer.flush();
+    }
+
+    /**
+     * Writes a topic and its subtree.
+     *
+     * @param out receives the topic
+     * @param size number of topics of the subtree, including the topic
+     * @param level level of the topic
+     * @throws IOException if the topic cannot be written
+     */
+    private void writeTopic(Writer out, int size, int level) throws IOException {
+        int number = topicCounter++;
+        out.write("<topic id=\"" + Integer.toString(number, Character.MAX_RADIX) + "\" timestamp=\"" + TIMESTAMP + "\"");
+        int attachment = getAttachment(number);
+        if (attachment >= 0) {
+            out.write(" xlink:href=\"xap:" + getAttachmentPath(attachment) + "\"");
+        }
+        out.write("><title>");
+        out.write(escape(text(titleLength)));
+        out.write("</title>");
+        if (noteLength > 0) {
+            out.write("<notes><plain>");
+            out.write(escape(text(noteLength)));
+            out.write("</plain></notes>");
+        }
+        int descendants = size - 1;
+        if (descendants > 0) {
+            // distribute the descendants evenly, thus no subtree exceeds the configured depth
+            int children = Math.min(fanOut, descendants);
+            out.write("<children><topics type=\"attached\">");
+            for (int i = 0; i < children; i++) {
+                writeTopic(out, descendants / children + (i < descendants % children ? 1 : 0), level + 1);
+            }
+            out.write("</topics></children>");
+        }
+        out.write("</topic>");
+    }
+
+    /**
+     * @return the number of the attachment of the given topic, or -1, if the topic has no attachment
+     */
+    private int getAttachment(int topic) {
+        if (attachments == 0) {
+            return -1;
+        }
+        int distance = topics / attachments;
+        return topic % distance == 0 && topic / distance < attachments ? topic / distance : -1;
+    }
+
+    private static String getAttachmentPath(int attachment) {
+        return "attachments/attachment" + attachment + ".bin";
+    }
+
+    /**
+     * @return a text of random words with exactly the given length
+     */
+    private String text(int length) {
+        StringBuilder text = new StringBuilder(length + 10);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setLength(length);
+        // leading or trailing blanks are removed by the exporter
+        if (text.charAt(length - 1) == ' ') {
+            text.setCharAt(length - 1, '.');
+        }
+        return text.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Generates a mind map from the command line. Use parameter "-h" to print all parameters.
+     *
+     * @param args command line parameters
+     * @throws IOException if the mind map cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = new Options();
+        options.addOption("o", "output", true, "Output file, an XMind file if it ends with \".xmind\", otherwise a content.xml.");
+        options.addOption("n", "topics", true, "Total number of topics (default 1000).");
+        options.addOption("f", "fan-out", true, "Maximal number of children of a topic (default: smallest that fits the depth).");
+        options.addOption("d", "depth", true, "Maximal depth of the topics (default 5).");
+        options.addOption("t", "title-length", true, "Length of the topic titles (default 40).");
+        options.addOption("s", "sheets", true, "Number of sheets (default 1).");
+        options.addOption("m", "notes", true, "Length of the note of each topic (default 0, no notes).");
+        options.addOption("a", "attachments", true, "Number of topics with an attachment (default 0).");
+        options.addOption("b", "attachment-size", true, "Size of each attachment in bytes (default 100000).");
+        options.addOption("r", "seed", true, "Seed of the generated content (default 0).");
+        options.addOption("h", "help", false, "Prints this help message.");
+        try {
+            CommandLine cmd = new BasicParser().parse(options, args);
+            if (cmd.hasOption("h") || !cmd.hasOption("o")) {
+                new HelpFormatter().printHelp("MindMapGenerator", options);
+                return;
+            }
+            Builder builder = new Builder()
+                    .withTopics(Integer.parseInt(cmd.getOptionValue("n", "1000")))
+                    .withFanOut(Integer.parseInt(cmd.getOptionValue("f", "0")))
+                    .withDepth(Integer.parseInt(cmd.getOptionValue("d", "5")))
+                    .withTitleLength(Integer.parseInt(cmd.getOptionValue("t", "40")))
+                    .withSheets(Integer.parseInt(cmd.getOptionValue("s", "1")))
+                    .withNotes(Integer.parseInt(cmd.getOptionValue("m", "0")))
+                    .withAttachments(Integer.parseInt(cmd.getOptionValue("a", "0")), Integer.parseInt(cmd.getOptionValue("b", "100000")))
+                    .withSeed(Long.parseLong(cmd.getOptionValue("r", "0")));
+            File target = new File(cmd.getOptionValue("o"));
+            builder.build().write(target);
+            System.out.println("Generated " + target + ".");
+        }
+        catch (ParseException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("MindMapGenerator", options);
+        }
+    }
+}
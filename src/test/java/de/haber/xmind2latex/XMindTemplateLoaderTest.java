@@ -23,8 +23,12 @@ package de.haber.xmind2latex;
 import static org.junit.Assert.*;
 import static de.haber.xmind2latex.XMindToLatexExporter.TEMPLATE_PACKAGE;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 
+import org.apache.commons.io.FileUtils;
+
 import org.junit.Test;
 
 /**
@@ -91,4 +95,60 @@ public class XMindTemplateLoaderTest {
 		URL result = testee.getURL("src/test/resources/someExternalTemplate");
 		assertNull(result);
 	}
+	
+	@Test
+	public void testNegativeCheckInterval() {
+		try {
+			new XMindTemplateLoader(this.getClass().getClassLoader(), -1);
+			fail("IllegalArgumentException expected");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testQualifiedTemplateNameCached() {
+		XMindTemplateLoader testee = new XMindTemplateLoader(this.getClass().getClassLoader(), 0);
+		URL result = testee.getURL(TEMPLATE_PACKAGE + "section");
+		assertSame(result, testee.getURL(TEMPLATE_PACKAGE + "section"));
+		assertNull(testee.getURL(TEMPLATE_PACKAGE + "does.not.exist"));
+		assertNull(testee.getURL(TEMPLATE_PACKAGE + "does.not.exist"));
+	}
+	
+	@Test
+	public void testFileTemplateChecked() throws IOException {
+		File dir = new File("target/testout/loader");
+		FileUtils.deleteDirectory(dir);
+		dir.mkdirs();
+		File template = new File(dir, "checked.ftl");
+		XMindTemplateLoader testee = new XMindTemplateLoader(this.getClass().getClassLoader(), 0);
+		
+		// a created file is found, although its absence has been cached
+		assertNull(testee.getURL(template.getPath()));
+		FileUtils.writeStringToFile(template, "${text}", "UTF-8");
+		URL result = testee.getURL(template.getPath());
+		assertNotNull(result);
+		assertSame(result, testee.getURL(template.getPath()));
+		
+		// a deleted file is not found anymore
+		assertTrue(template.delete());
+		assertNull(testee.getURL(template.getPath()));
+	}
+	
+	@Test
+	public void testFileTemplateCheckInterval() throws IOException {
+		File dir = new File("target/testout/loader");
+		FileUtils.deleteDirectory(dir);
+		dir.mkdirs();
+		File template = new File(dir, "cached.ftl");
+		FileUtils.writeStringToFile(template, "${text}", "UTF-8");
+		XMindTemplateLoader testee = new XMindTemplateLoader(this.getClass().getClassLoader(), 60000);
+		
+		// the resolution is not checked before the interval elapsed
+		URL result = testee.getURL(template.getPath());
+		assertNotNull(result);
+		assertTrue(template.delete());
+		assertSame(result, testee.getURL(template.getPath()));
+	}
 }
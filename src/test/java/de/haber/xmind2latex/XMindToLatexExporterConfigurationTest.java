@@ -20,13 +20,23 @@
 package de.haber.xmind2latex;
 
 import static de.haber.xmind2latex.XMindToLatexExporter.TEMPLATE_PACKAGE;
+import static de.haber.xmind2latex.cli.CliParameters.CACHE;
 import static de.haber.xmind2latex.cli.CliParameters.INPUT;
+import static de.haber.xmind2latex.cli.CliParameters.JOBS;
+import static de.haber.xmind2latex.cli.CliParameters.OUTPUT;
 import static de.haber.xmind2latex.cli.CliParameters.LEVEL;
+import static de.haber.xmind2latex.cli.CliParameters.MULTI_FILE;
+import static de.haber.xmind2latex.cli.CliParameters.PARSER;
+import static de.haber.xmind2latex.cli.CliParameters.RENDER_THREADS;
+import static de.haber.xmind2latex.cli.CliParameters.SKIP_UNCHANGED;
+import static de.haber.xmind2latex.cli.CliParameters.SPLIT_LEVEL;
+import static de.haber.xmind2latex.cli.CliParameters.STATISTICS;
 import static de.haber.xmind2latex.cli.CliParameters.TEMPLATE_LEVEL;
 import static de.haber.xmind2latex.cli.CliParameters.VERSION;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -36,15 +46,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
-
-import net.lingala.zip4j.io.ZipInputStream;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
 import de.haber.xmind2latex.XMindToLatexExporter.Builder;
+import de.haber.xmind2latex.cli.BatchParameters;
 import de.haber.xmind2latex.cli.CliParameters;
 import de.haber.xmind2latex.help.ConfigurationException;
 
@@ -512,6 +529,67 @@ public class XMindToLatexExporterConfigurationTest {
         }
     }
     
+    @Test
+    public void testConfigureInNotKeptOpen() throws IOException {
+        File in = new File("src/test/resources/content.xml");
+        XMindToLatexExporter exporter = new Builder(in).build();
+        
+        InputStream first = exporter.getxMindSourceAsStream();
+        InputStream second = exporter.getxMindSourceAsStream();
+        assertNotSame(first, second);
+        assertTrue(((FileInputStream) first).getFD().valid());
+        
+        exporter.close();
+        assertFalse(((FileInputStream) first).getFD().valid());
+        assertFalse(((FileInputStream) second).getFD().valid());
+        try {
+            exporter.getxMindSourceAsStream();
+            fail("IllegalStateException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void testConfigureClosedStreamsNotTracked() throws Exception {
+        Field opened = XMindToLatexExporter.class.getDeclaredField("openedStreams");
+        opened.setAccessible(true);
+        for (String name : new String[] {"content.xml", "example.xmind"}) {
+            XMindToLatexExporter exporter = new Builder(new File("src/test/resources/" + name)).build();
+            InputStream first = exporter.getxMindSourceAsStream();
+            InputStream second = exporter.getxMindSourceAsStream();
+            assertEquals(2, ((Collection<?>) opened.get(exporter)).size());
+            
+            // streams closed by the caller are released immediately
+            first.close();
+            assertEquals(1, ((Collection<?>) opened.get(exporter)).size());
+            exporter.close();
+            assertTrue(((Collection<?>) opened.get(exporter)).isEmpty());
+            second.close();
+        }
+    }
+    
+    @Test
+    public void testFailConfigureXMindWithoutContent() throws IOException {
+        File in = new File("target/testout/withoutContent.xmind");
+        in.getParentFile().mkdirs();
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(in));
+        zip.putNextEntry(new ZipEntry("meta.xml"));
+        zip.write("<meta/>".getBytes(Charsets.UTF_8));
+        zip.closeEntry();
+        zip.close();
+        
+        try {
+            new Builder(in).build();
+            fail("ConfigurationException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ConfigurationException);
+            assertTrue(e.getMessage().contains("content.xml"));
+        }
+    }
+    
     @Test
     public void testConfigureIn2() {
         File in = new File("src/test/resources/content.xml");
@@ -547,9 +625,11 @@ public class XMindToLatexExporterConfigurationTest {
         try {
             exporter = CliParameters.build(args);
             assertEquals(expectedOut, exporter.getTargetFile().getAbsolutePath());
-            assertTrue(exporter.getxMindSourceAsStream().getClass().getName(), exporter.getxMindSourceAsStream() instanceof ZipInputStream);
-            ZipInputStream fis = (ZipInputStream) exporter.getxMindSourceAsStream();
-            assertNotNull(fis);
+            InputStream content = exporter.getxMindSourceAsStream();
+            assertNotNull(content);
+            byte[] start = new byte[5];
+            ByteStreams.readFully(content, start);
+            assertEquals("<?xml", new String(start, Charsets.UTF_8));
             assertFalse(exporter.isOverwriteExistingFile());
         }
         catch (Exception e) {
@@ -764,6 +844,337 @@ public class XMindToLatexExporterConfigurationTest {
         }
     }
     
+    @Test
+    public void testConfigureRenderCache() {
+        File in = new File("src/test/resources/content.xml");
+        File out = new File("target/testout/cached.tex");
+        
+        XMindToLatexExporter exporter = new Builder(in).withTargetFile(out).build();
+        assertNull(exporter.getRenderCacheFile());
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + OUTPUT, out.getPath(),
+                "-" + CACHE
+        };
+        try {
+            exporter = CliParameters.build(args);
+            assertEquals(new File("target/testout/cached.tex.cache"), exporter.getRenderCacheFile());
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureSkipUnchanged() {
+        File in = new File("src/test/resources/jms.xmind");
+        File out = new File("target/testout/stamped.tex");
+        
+        XMindToLatexExporter exporter = new Builder(in).withTargetFile(out).build();
+        assertNull(exporter.getStampFile());
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + OUTPUT, out.getPath(),
+                "-" + SKIP_UNCHANGED
+        };
+        try {
+            exporter = CliParameters.build(args);
+            assertEquals(new File("target/testout/stamped.tex.stamp"), exporter.getStampFile());
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureStatistics() {
+        File in = new File("src/test/resources/jms.xmind");
+        
+        XMindToLatexExporter exporter = new Builder(in).build();
+        assertFalse(exporter.collectsStatistics());
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + STATISTICS
+        };
+        try {
+            exporter = CliParameters.build(args);
+            assertTrue(exporter.collectsStatistics());
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureRenderThreads() throws IOException {
+        File in = new File("src/test/resources/jms.xmind");
+        
+        XMindToLatexExporter exporter = new Builder(in).build();
+        assertEquals(1, exporter.getRenderThreads());
+        assertEquals(XMindToLatexExporter.DEFAULT_SPLIT_LEVEL, exporter.getSplitLevel());
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + RENDER_THREADS, "3",
+                "-" + SPLIT_LEVEL, "4"
+        };
+        try {
+            exporter = CliParameters.build(args);
+            assertEquals(3, exporter.getRenderThreads());
+            assertEquals(4, exporter.getSplitLevel());
+            exporter.close();
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureRenderThreadsInvalid() {
+        for (char param : new char[] { RENDER_THREADS, SPLIT_LEVEL }) {
+            String[] args = new String[] {
+                    "-" + INPUT, "src/test/resources/content.xml",
+                    "-" + param, "0"
+            };
+            try {
+                CliParameters.build(args);
+                fail("ParseException expected");
+            }
+            catch (Exception e) {
+                assertTrue(e instanceof ParseException);
+            }
+        }
+    }
+    
+    @Test
+    public void testConfigureChapterFiles() throws IOException {
+        File in = new File("src/test/resources/jms.xmind");
+        
+        XMindToLatexExporter exporter = new Builder(in).withTargetFile(new File("target/testout/book.tex")).build();
+        assertFalse(exporter.isWriteChapterFiles());
+        assertNull(exporter.getChapterDirectory());
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + OUTPUT, "target/testout/book.tex",
+                "-" + MULTI_FILE
+        };
+        try {
+            exporter = CliParameters.build(args);
+            assertTrue(exporter.isWriteChapterFiles());
+            assertEquals(new File("target/testout/book-chapters").getAbsoluteFile(), exporter.getChapterDirectory());
+            assertEquals(Runtime.getRuntime().availableProcessors(), exporter.getRenderThreads());
+            assertEquals(1, exporter.getSplitLevel());
+            exporter.close();
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+        assertEquals(new File("out/jms-xmind-chapters").getAbsoluteFile(), XMindToLatexExporter.getChapterDirectory(new File("out/jms.xmind.tex")));
+    }
+    
+    @Test
+    public void testBuilderWithChapterFilesAndRenderCacheException() {
+        Builder builder = new Builder(new File("src/test/resources/content.xml"))
+                .withRenderCache(true)
+                .writesChapterFiles(true);
+        try {
+            builder.build();
+            fail("ConfigurationException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ConfigurationException);
+        }
+    }
+    
+    @Test
+    public void testBuilderWithRenderThreadsAndRenderCacheException() {
+        Builder builder = new Builder(new File("src/test/resources/content.xml"))
+                .withRenderCache(true)
+                .withRenderThreads(2);
+        try {
+            builder.build();
+            fail("ConfigurationException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ConfigurationException);
+        }
+    }
+    
+    @Test
+    public void testConfigureParserDefault() {
+        File in = new File("src/test/resources/content.xml");
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath()
+        };
+        try {
+            XMindToLatexExporter exporter = CliParameters.build(args);
+            assertEquals(ParserType.STAX, exporter.getParser());
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureParser() {
+        File in = new File("src/test/resources/content.xml");
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + PARSER, "dom"
+        };
+        try {
+            XMindToLatexExporter exporter = CliParameters.build(args);
+            assertEquals(ParserType.DOM, exporter.getParser());
+        }
+        catch (ParseException e) {
+            fail(e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testConfigureParserInvalid() {
+        File in = new File("src/test/resources/content.xml");
+        
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "--parser", "sax"
+        };
+        try {
+            CliParameters.build(args);
+            fail("ParseException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ParseException);
+        }
+    }
+    
+    @Test
+    public void testBuilderWithParserNullException() {
+        File in = new File("src/test/resources/content.xml");
+        Builder builder = new Builder(in);
+        try {
+            builder.withParser(null);
+            fail("Expected " + NullPointerException.class.getName());
+        }
+        catch (Exception e) {
+            assertEquals(NullPointerException.class, e.getClass());
+        }
+    }
+    
+    @Test
+    public void testConfigureBatchMultipleInputs() throws ParseException {
+        File xml = new File("src/test/resources/content.xml");
+        File xmind = new File("src/test/resources/example.xmind");
+        
+        String[] args = new String[] {
+                "-" + INPUT, xml.getPath(), xmind.getPath(),
+                "-" + JOBS, "3"
+        };
+        BatchParameters batch = CliParameters.buildBatch(args);
+        assertEquals(3, batch.getJobs());
+        assertEquals(2, batch.getBuilders().size());
+        assertEquals(xml.getAbsoluteFile(), batch.getBuilders().get(0).getInputFile());
+        assertEquals(xmind.getAbsoluteFile(), batch.getBuilders().get(1).getInputFile());
+        assertEquals(xml.getAbsolutePath() + ".tex", batch.getBuilders().get(0).build().getTargetFile().getAbsolutePath());
+    }
+    
+    @Test
+    public void testConfigureBatchDirectory() throws ParseException {
+        File out = new File("target/testout/batch");
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources",
+                "-" + OUTPUT, out.getPath()
+        };
+        BatchParameters batch = CliParameters.buildBatch(args);
+        // all XMind files, but not content.xml
+        assertEquals(4, batch.getBuilders().size());
+        for (Builder b : batch.getBuilders()) {
+            assertTrue(b.getInputFile().getName().endsWith(".xmind"));
+        }
+        assertEquals(Runtime.getRuntime().availableProcessors(), batch.getJobs());
+        XMindToLatexExporter first = batch.getBuilders().get(0).build();
+        assertEquals(new File(out, "WithEmptyNode.xmind.tex"), first.getTargetFile());
+    }
+    
+    @Test
+    public void testConfigureBatchGlob() throws ParseException {
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources/j*.xmind", "src/test/resources/jms.xmind"
+        };
+        BatchParameters batch = CliParameters.buildBatch(args);
+        // jms.xmind is matched twice, but used once
+        assertEquals(2, batch.getBuilders().size());
+        assertEquals("jms.7zip.xmind", batch.getBuilders().get(0).getInputFile().getName());
+        assertEquals("jms.xmind", batch.getBuilders().get(1).getInputFile().getName());
+    }
+    
+    @Test
+    public void testConfigureBatchGlobNoMatch() {
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources/*.doesNotExist"
+        };
+        try {
+            CliParameters.buildBatch(args);
+            fail("ParseException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ParseException);
+        }
+    }
+    
+    @Test
+    public void testConfigureBatchSameTarget() throws IOException {
+        File other = new File("target/testout/other/content.xml");
+        other.getParentFile().mkdirs();
+        FileUtils.copyFile(new File("src/test/resources/content.xml"), other);
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources/content.xml", other.getPath(),
+                "-" + OUTPUT, "target/testout/batch"
+        };
+        try {
+            CliParameters.buildBatch(args);
+            fail("ParseException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ParseException);
+        }
+    }
+    
+    @Test
+    public void testConfigureBatchInvalidJobs() {
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources/content.xml",
+                "-" + JOBS, "0"
+        };
+        try {
+            CliParameters.buildBatch(args);
+            fail("ParseException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ParseException);
+        }
+    }
+    
+    @Test
+    public void testConfigureSingleWithMultipleInputsFails() {
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources/content.xml", "src/test/resources/example.xmind"
+        };
+        try {
+            CliParameters.build(args);
+            fail("ParseException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof ParseException);
+        }
+    }
+    
     @Test
     public void testBuilderWithMaxLevelException() {
         File in = new File("src/test/resources/content.xml");
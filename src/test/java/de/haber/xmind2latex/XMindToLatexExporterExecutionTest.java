@@ -24,23 +24,59 @@ import static de.haber.xmind2latex.cli.CliParameters.FORCE;
 import static de.haber.xmind2latex.cli.CliParameters.INPUT;
 import static de.haber.xmind2latex.cli.CliParameters.LEVEL;
 import static de.haber.xmind2latex.cli.CliParameters.OUTPUT;
+import static de.haber.xmind2latex.cli.CliParameters.STATISTICS;
 import static de.haber.xmind2latex.cli.CliParameters.TEMPLATE_LEVEL;
+import static de.haber.xmind2latex.cli.CliParameters.WATCH;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.xml.sax.SAXException;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 
+import de.haber.xmind2latex.cli.BatchParameters;
 import de.haber.xmind2latex.cli.CliParameters;
+import de.haber.xmind2latex.help.ConfigurationException;
 
 /**
  * Execution tests for the {@link XMindToLatexExporter}.
@@ -148,6 +184,983 @@ public class XMindToLatexExporterExecutionTest {
         }
     }
     
+    @Test
+    public void testExecuteTwice() throws Exception {
+        File in = new File("src/test/resources/jms.xmind");
+        File first = new File("target/testout/resultFirstRun.tex");
+        File second = new File("target/testout/resultSecondRun.tex");
+        first.delete();
+        
+        try (XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(first)
+                .build()) {
+            exporter.convert();
+            assertTrue(first.exists());
+            Files.copy(first, second);
+            first.delete();
+            
+            exporter.convert();
+            assertTrue(Files.equal(first, second));
+        }
+    }
+    
+    @Test
+    public void testExecuteAfterCloseFails() throws Exception {
+        File in = new File("src/test/resources/content.xml");
+        File out = new File("target/testout/resultAfterClose.tex");
+        out.delete();
+        XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(in).withTargetFile(out).build();
+        exporter.close();
+        try {
+            exporter.convert();
+            fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException e) {
+            assertFalse(out.exists());
+        }
+    }
+    
+    @Test(timeout = 60000)
+    public void testExecuteConcurrently() throws Exception {
+        File dir = new File("target/testout/concurrent");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        List<File> inputs = Lists.newArrayList(
+                new File("src/test/resources/jms.xmind"),
+                new File("src/test/resources/example.xmind"),
+                new File("src/test/resources/WithEmptyNode.xmind"),
+                new File("src/test/resources/content.xml"));
+        for (int depth = 3; depth <= 8; depth++) {
+            File generated = new File(dir, "generated-" + depth + ".xmind");
+            new MindMapGenerator.Builder().withTopics(500).withDepth(depth).withSeed(depth).build().write(generated);
+            inputs.add(generated);
+        }
+        
+        // reference outputs of separate exporters, converted sequentially
+        Map<File, File> expected = Maps.newHashMap();
+        Map<File, Integer> expectedTopics = Maps.newHashMap();
+        for (File in : inputs) {
+            File out = new File(dir, in.getName() + ".expected.tex");
+            ConversionResult result = configureConcurrent(new XMindToLatexExporter.Builder(in))
+                    .withTargetFile(out)
+                    .build().convert();
+            expected.put(in, out);
+            expectedTopics.put(in, countTopics(result));
+        }
+        
+        // a single exporter converts all inputs several times from a thread pool, the second
+        // round reads the render caches that have been written by the first one
+        final XMindToLatexExporter exporter = configureConcurrent(new XMindToLatexExporter.Builder())
+                .withRenderCache(true)
+                .build();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 2; round++) {
+                Map<File, Future<ConversionResult>> results = Maps.newLinkedHashMap();
+                for (int copy = 0; copy < 8; copy++) {
+                    for (final File in : inputs) {
+                        final File out = new File(dir, in.getName() + "." + copy + ".tex");
+                        results.put(out, pool.submit(new Callable<ConversionResult>() {
+                            @Override
+                            public ConversionResult call() throws Exception {
+                                return exporter.convert(in, out);
+                            }
+                        }));
+                    }
+                }
+                for (Map.Entry<File, Future<ConversionResult>> entry : results.entrySet()) {
+                    ConversionResult result = entry.getValue().get();
+                    File in = result.getInputFile();
+                    assertEquals(entry.getKey(), result.getTargetFile());
+                    assertEquals(expectedTopics.get(in).intValue(), countTopics(result));
+                    assertTrue(entry.getKey().getName(), Files.equal(expected.get(in), entry.getKey()));
+                    assertTrue(new File(entry.getKey().getPath() + XMindToLatexExporter.RENDER_CACHE_EXTENSION).exists());
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+            exporter.close();
+        }
+    }
+    
+    @Test(timeout = 60000)
+    public void testExecuteParallel() throws Exception {
+        File dir = new File("target/testout/parallel");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        List<File> inputs = Lists.newArrayList(
+                new File("src/test/resources/jms.xmind"),
+                new File("src/test/resources/WithEmptyNode.xmind"),
+                new File("src/test/resources/content.xml"));
+        for (int depth = 2; depth <= 7; depth++) {
+            File generated = new File(dir, "generated-" + depth + ".xmind");
+            new MindMapGenerator.Builder().withTopics(400).withDepth(depth).withSheets(3).withSeed(depth).build().write(generated);
+            inputs.add(generated);
+        }
+        
+        for (File in : inputs) {
+            File serial = new File(dir, in.getName() + ".serial.tex");
+            ConversionResult expected = configureConcurrent(new XMindToLatexExporter.Builder(in))
+                    .withTargetFile(serial)
+                    .build().convert();
+            for (int splitLevel = 1; splitLevel <= 5; splitLevel++) {
+                File parallel = new File(dir, in.getName() + "." + splitLevel + ".tex");
+                try (XMindToLatexExporter exporter = configureConcurrent(new XMindToLatexExporter.Builder(in))
+                        .withTargetFile(parallel)
+                        .withRenderThreads(4)
+                        .withSplitLevel(splitLevel)
+                        .withParser(splitLevel % 2 == 0 ? ParserType.DOM : ParserType.STAX)
+                        .build()) {
+                    ConversionResult result = exporter.convert();
+                    assertTrue(parallel.getName(), Files.equal(serial, parallel));
+                    assertEquals(expected.getTopicsPerLevel(), result.getTopicsPerLevel());
+                    assertEquals(expected.getTemplateStatistics().keySet(), result.getTemplateStatistics().keySet());
+                    for (String template : expected.getTemplateStatistics().keySet()) {
+                        assertEquals(expected.getTemplateStatistics().get(template).getRenders(),
+                                result.getTemplateStatistics().get(template).getRenders());
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test(timeout = 60000)
+    public void testExecuteParallelWithoutClose() throws Exception {
+        File dir = new File("target/testout/parallel-unclosed");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        // the idiom of exporters that are not closed must not leave render threads behind
+        for (int i = 0; i < 3; i++) {
+            new XMindToLatexExporter.Builder(new File("src/test/resources/jms.xmind"))
+                    .withTargetFile(new File(dir, "jms-" + i + ".tex"))
+                    .withRenderThreads(4)
+                    .build().convert();
+        }
+        while (hasRenderThreads()) {
+            Thread.sleep(10);
+        }
+    }
+    
+    /**
+     * @return true, if a thread of a render pool is alive
+     */
+    private static boolean hasRenderThreads() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().matches("ForkJoinPool-\\d+-worker-\\d+")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Test(timeout = 60000)
+    public void testExecuteChapterFiles() throws Exception {
+        File dir = new File("target/testout/chapters");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File generated = new File(dir, "generated.xmind");
+        new MindMapGenerator.Builder().withTopics(300).withDepth(5).withSheets(4).build().write(generated);
+        
+        for (File in : Lists.newArrayList(new File("src/test/resources/jms.xmind"), generated)) {
+            File expected = new File(dir, in.getName() + ".expected.tex");
+            configureConcurrent(new XMindToLatexExporter.Builder(in)).withTargetFile(expected).build().convert();
+            
+            File book = new File(dir, in.getName() + ".tex");
+            try (XMindToLatexExporter exporter = configureConcurrent(new XMindToLatexExporter.Builder(in))
+                    .withTargetFile(book)
+                    .writesChapterFiles(true)
+                    .build()) {
+                exporter.convert();
+                // the master file with included chapters is the single file output
+                assertEquals(Files.toString(expected, Charsets.UTF_8), includeChapters(book));
+            }
+        }
+        assertEquals(4, XMindToLatexExporter.getChapterDirectory(new File(dir, "generated.xmind.tex")).list().length);
+        
+        // only changed chapters are written, chapters of removed sheets are deleted
+        File in = new File(dir, "book.xml");
+        File book = new File(dir, "book.tex");
+        String sheets = "<sheet><topic><title>One</title><children><topics><topic><title>A</title></topic></topics></children></topic></sheet>"
+                + "<sheet><topic><title>Two</title></topic></sheet>";
+        Files.write("<xmap-content>" + sheets + "<sheet><topic><title>Three</title></topic></sheet></xmap-content>", in, Charsets.UTF_8);
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(book)
+                .writesChapterFiles(true)
+                .overwritesExistingFiles(true)
+                .keepsUnchangedFiles(true);
+        builder.build().convert();
+        File chapters = XMindToLatexExporter.getChapterDirectory(book);
+        assertEquals(new File(dir, "book-chapters").getAbsoluteFile(), chapters);
+        assertEquals("\\include{book-chapters/chapter-001}\n\\include{book-chapters/chapter-002}\n\\include{book-chapters/chapter-003}\n",
+                Files.toString(book, Charsets.UTF_8));
+        File first = new File(chapters, "chapter-001.tex");
+        File third = new File(chapters, "chapter-003.tex");
+        long modified = 1000000000000L;
+        for (File chapter : chapters.listFiles()) {
+            assertTrue(chapter.setLastModified(modified));
+        }
+        
+        Files.write("<xmap-content>" + sheets + "<sheet><topic><title>Drei</title></topic></sheet></xmap-content>", in, Charsets.UTF_8);
+        builder.build().convert();
+        assertEquals(modified, first.lastModified());
+        assertTrue(third.lastModified() != modified);
+        assertTrue(Files.toString(third, Charsets.UTF_8).contains("Drei"));
+        
+        Files.write("<xmap-content>" + sheets + "</xmap-content>", in, Charsets.UTF_8);
+        ConversionResult result = builder.build().convert();
+        assertFalse(third.exists());
+        assertEquals(2, chapters.list().length);
+        // the output covers the master file and the chapter files
+        assertEquals(book.length() + first.length() + new File(chapters, "chapter-002.tex").length(), result.getOutputBytes());
+    }
+    
+    @Test(timeout = 60000)
+    public void testExecuteChapterFilesFailedConversion() throws Exception {
+        File dir = new File("target/testout/chapters-failed");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File(dir, "book.xml");
+        File book = new File(dir, "book.tex");
+        StringBuilder sheets = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            sheets.append("<sheet><topic><title>Sheet ").append(i).append("</title></topic></sheet>");
+        }
+        Files.write("<xmap-content>" + sheets + "</xmap-content>", in, Charsets.UTF_8);
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(book)
+                .writesChapterFiles(true)
+                .overwritesExistingFiles(true);
+        builder.build().convert();
+        File chapters = XMindToLatexExporter.getChapterDirectory(book);
+        Map<File, String> expected = Maps.newHashMap();
+        expected.put(book, Files.toString(book, Charsets.UTF_8));
+        for (File chapter : chapters.listFiles()) {
+            expected.put(chapter, Files.toString(chapter, Charsets.UTF_8));
+        }
+        assertEquals(21, expected.size());
+        
+        // all chapters change, but the last sheet is broken
+        Files.write("<xmap-content>" + sheets.toString().replace("Sheet", "Kapitel")
+                + "<sheet><topic><title>Broken</topic></sheet></xmap-content>", in, Charsets.UTF_8);
+        try {
+            builder.build().convert();
+            fail("Expected fail");
+        }
+        catch (SAXException e) {
+            // expected
+        }
+        for (Map.Entry<File, String> file : expected.entrySet()) {
+            assertEquals(file.getKey().getName(), file.getValue(), Files.toString(file.getKey(), Charsets.UTF_8));
+        }
+        assertEquals(20, chapters.list().length);
+    }
+    
+    /**
+     * @param book master file of chapter files
+     * @return the content of the given master file with the content of the chapter files instead of their include lines
+     */
+    private static String includeChapters(File book) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : Files.readLines(book, Charsets.UTF_8)) {
+            if (line.startsWith("\\include{")) {
+                String chapter = line.substring("\\include{".length(), line.length() - 1);
+                content.append(Files.toString(new File(book.getParentFile(), chapter + XMindToLatexExporter.TEX_EXTENSION), Charsets.UTF_8));
+            }
+            else {
+                content.append(line).append(XMindToLatexExporter.NEW_LINE);
+            }
+        }
+        return content.toString();
+    }
+    
+    private static XMindToLatexExporter.Builder configureConcurrent(XMindToLatexExporter.Builder builder) {
+        return builder
+                .overwritesExistingFiles(true)
+                .collectsStatistics(true)
+                .withEnvironmentTemplates(4, TEMPLATE_PACKAGE + "env.startEnumerate", TEMPLATE_PACKAGE + "env.endEnumerate")
+                .withTemplate(4, TEMPLATE_PACKAGE + "env.item")
+                .withTemplate(5, "src/test/resources/someExternalTemplate.ftl");
+    }
+    
+    private static int countTopics(ConversionResult result) {
+        int topics = 0;
+        for (int count : result.getTopicsPerLevel().values()) {
+            topics += count;
+        }
+        return topics;
+    }
+    
+    @Test
+    public void testExecuteWithoutInputFile() throws Exception {
+        File in = new File("src/test/resources/content.xml");
+        File out = new File("target/testout/resultWithoutInputFile.tex");
+        out.delete();
+        try (XMindToLatexExporter exporter = new XMindToLatexExporter.Builder().build()) {
+            assertNull(exporter.getTargetFile());
+            try {
+                exporter.convert();
+                fail("IllegalStateException expected");
+            }
+            catch (IllegalStateException e) {
+                // no input file to convert
+            }
+            exporter.convert(in, out);
+            assertTrue(out.exists());
+        }
+    }
+    
+    @Test
+    public void testExecuteBatch() throws Exception {
+        File out = new File("target/testout/batch");
+        FileUtils.deleteDirectory(out);
+        String[] args = new String[] {
+                "-" + INPUT, "src/test/resources",
+                "-" + OUTPUT, out.getPath(),
+                "-j", "2"
+        };
+        BatchParameters batch = CliParameters.buildBatch(args);
+        BatchConverter.Result result = new BatchConverter(batch.getJobs()).convert(batch.getBuilders());
+        
+        // jms.7zip.xmind is no zip file and fails, the remaining files are converted
+        assertEquals(3, result.getConverted());
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getFailures().size());
+        File failed = result.getFailures().keySet().iterator().next();
+        assertEquals("jms.7zip.xmind", failed.getName());
+        assertFalse(new File(out, "jms.7zip.xmind.tex").exists());
+        
+        File single = new File("target/testout/batch_single.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/jms.xmind"))
+                .withTargetFile(single)
+                .overwritesExistingFiles(true)
+                .build().convert();
+        assertTrue(Files.equal(single, new File(out, "jms.xmind.tex")));
+        assertTrue(new File(out, "example.xmind.tex").exists());
+        assertTrue(new File(out, "WithEmptyNode.xmind.tex").exists());
+    }
+    
+    @Test
+    public void testExecuteBatchWithRenderPermits() throws Exception {
+        File out = new File("target/testout/batch_permits");
+        FileUtils.deleteDirectory(out);
+        List<XMindToLatexExporter.Builder> builders = Lists.newArrayList();
+        for (String name : new String[] {"example.xmind", "jms.xmind", "WithEmptyNode.xmind"}) {
+            builders.add(new XMindToLatexExporter.Builder(new File("src/test/resources/" + name))
+                    .withTargetFile(new File(out, name + ".tex")));
+        }
+        out.mkdirs();
+        
+        // a single permit shared with other converters serializes the renders of all jobs
+        Semaphore renderPermits = new Semaphore(1);
+        BatchConverter converter = new BatchConverter(3, false, renderPermits);
+        assertFalse(converter.usesVirtualThreads());
+        BatchConverter.Result result = converter.convert(builders);
+        assertTrue(result.isSuccessful());
+        assertEquals(3, result.getConverted());
+        assertEquals(1, renderPermits.availablePermits());
+        
+        File single = new File("target/testout/batch_permits_single.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/jms.xmind"))
+                .withTargetFile(single)
+                .overwritesExistingFiles(true)
+                .build().convert();
+        assertTrue(Files.equal(single, new File(out, "jms.xmind.tex")));
+        
+        assertEquals(ConversionExecutors.isVirtualThreadsAvailable(), new BatchConverter(2).usesVirtualThreads());
+        if (!ConversionExecutors.isVirtualThreadsAvailable()) {
+            try {
+                new BatchConverter(2, true, null);
+                fail("UnsupportedOperationException expected");
+            }
+            catch (Exception e) {
+                assertTrue(e instanceof UnsupportedOperationException);
+            }
+        }
+    }
+    
+    @Test
+    public void testExecuteBatchWithSeveralConfigurations() throws Exception {
+        File out = new File("target/testout/batch_configurations");
+        FileUtils.deleteDirectory(out);
+        File in = new File("src/test/resources/jms.xmind");
+        File expected = new File(out, "expected.tex");
+        File expectedLevel1 = new File(out, "expectedLevel1.tex");
+        new XMindToLatexExporter.Builder(in).withTargetFile(expected).build().convert();
+        new XMindToLatexExporter.Builder(in).withTargetFile(expectedLevel1).withMaxLevel(1).build().convert();
+        
+        List<XMindToLatexExporter.Builder> builders = Lists.newArrayList();
+        builders.add(new XMindToLatexExporter.Builder(in).withTargetFile(new File(out, "a.tex")));
+        builders.add(new XMindToLatexExporter.Builder(in).withTargetFile(new File(out, "b.tex")).withMaxLevel(1));
+        builders.add(new XMindToLatexExporter.Builder(in).withTargetFile(new File(out, "c.tex")));
+        builders.add(new XMindToLatexExporter.Builder(in).withTargetFile(new File(out, "d.tex")).withRenderCache(true).withRenderThreads(2));
+        BatchConverter.Result result = new BatchConverter(2).convert(builders);
+        
+        assertEquals(3, result.getConverted());
+        assertTrue(Files.equal(expected, new File(out, "a.tex")));
+        assertTrue(Files.equal(expectedLevel1, new File(out, "b.tex")));
+        assertTrue(Files.equal(expected, new File(out, "c.tex")));
+        // an invalid configuration fails its inputs only
+        assertTrue(result.getFailures().get(in) instanceof ConfigurationException);
+        assertFalse(new File(out, "d.tex").exists());
+    }
+    
+    @Test
+    public void testExecuteWithRenderPermits() throws Exception {
+        File out = new File("target/testout/permits.tex");
+        out.delete();
+        XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(new File("src/test/resources/jms.xmind"))
+                .withTargetFile(out)
+                .overwritesExistingFiles(true)
+                .skipsUnchangedInputs(true)
+                .build();
+        Semaphore renderPermits = new Semaphore(1);
+        assertFalse(exporter.convert(renderPermits).isSkipped());
+        assertEquals(1, renderPermits.availablePermits());
+        
+        // the stamp check of an unchanged input does not wait for a permit
+        renderPermits.acquire();
+        assertTrue(exporter.convert(renderPermits).isSkipped());
+        
+        // a changed input waits for a permit
+        out.delete();
+        Thread.currentThread().interrupt();
+        try {
+            exporter.convert(renderPermits);
+            fail("InterruptedIOException expected");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof InterruptedIOException);
+            assertTrue(Thread.interrupted());
+        }
+        assertFalse(out.exists());
+        renderPermits.release();
+        assertFalse(exporter.convert(renderPermits).isSkipped());
+        assertTrue(out.exists());
+    }
+    
+    @Test(timeout = 20000)
+    public void testExecuteWatch() throws Exception {
+        File dir = new File("target/testout/watch");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File(dir, "map.xmind");
+        File out = new File(dir, "map.xmind.tex");
+        Files.copy(new File("src/test/resources/jms.xmind"), in);
+        
+        File expected = new File("target/testout/watch_expected.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/example.xmind"))
+                .withTargetFile(expected)
+                .overwritesExistingFiles(true)
+                .build().convert();
+        
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in);
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        PrintStream report = new PrintStream(messages, true, "UTF-8");
+        // existing files are only overwritten on request
+        try {
+            new Watcher(Collections.singletonList(builder), 50, report, report);
+            fail("Expected fail");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+        String[] args = new String[] { "-" + INPUT, in.getPath(), "-" + WATCH };
+        assertEquals(-1, Main.run(args, new PrintStream(new ByteArrayOutputStream()), report, true));
+        assertTrue(messages.toString("UTF-8").startsWith("Parameter -" + WATCH + " requires parameter -" + FORCE + "."));
+        assertFalse(out.exists());
+        messages.reset();
+        
+        final Watcher watcher = new Watcher(Collections.singletonList(builder.overwritesExistingFiles(true)), 50, report, report);
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.watch();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        try {
+            // files that are not watched are ignored
+            Files.copy(new File("src/test/resources/jms.xmind"), new File(dir, "other.xmind"));
+            Files.copy(new File("src/test/resources/example.xmind"), in);
+            while (!out.exists() || !Files.equal(expected, out)) {
+                Thread.sleep(50);
+            }
+            assertFalse(new File(dir, "other.xmind.tex").exists());
+        }
+        finally {
+            watcher.close();
+            thread.join();
+        }
+        assertTrue(messages.toString("UTF-8").startsWith("Converted " + in.toPath().toAbsolutePath()));
+    }
+    
+    @Test(timeout = 20000)
+    public void testExecuteWatchDiscardsPendingOnClose() throws Exception {
+        File dir = new File("target/testout/watch_close");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File(dir, "map.xmind");
+        File out = new File(dir, "map.xmind.tex");
+        Files.copy(new File("src/test/resources/jms.xmind"), in);
+        
+        final Watcher watcher = new Watcher(Collections.singletonList(new XMindToLatexExporter.Builder(in).overwritesExistingFiles(true)), 1000,
+                new PrintStream(new ByteArrayOutputStream()), new PrintStream(new ByteArrayOutputStream()));
+        Thread thread = new Thread(() -> {
+            try {
+                watcher.watch();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        Files.copy(new File("src/test/resources/example.xmind"), in);
+        Field scheduler = Watcher.class.getDeclaredField("scheduler");
+        scheduler.setAccessible(true);
+        while (((ScheduledThreadPoolExecutor) scheduler.get(watcher)).getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+        watcher.close();
+        thread.join();
+        Thread.sleep(1500);
+        assertFalse(out.exists());
+    }
+    
+    @Test
+    public void testExecuteRenderCache() throws Exception {
+        File dir = new File("target/testout/cache");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File(dir, "content.xml");
+        File out = new File(dir, "content.tex");
+        File uncached = new File(dir, "uncached.tex");
+        Files.copy(new File("src/test/resources/content.xml"), in);
+        
+        new XMindToLatexExporter.Builder(in).withTargetFile(uncached).build().convert();
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(out)
+                .overwritesExistingFiles(true)
+                .withRenderCache(true);
+        builder.build().convert();
+        File cache = new File(dir, "content.tex" + XMindToLatexExporter.RENDER_CACHE_EXTENSION);
+        assertTrue(cache.exists());
+        assertTrue(Files.equal(uncached, out));
+        
+        // a title change without a new timestamp is not detected, thus the cached rendering is used
+        String content = Files.toString(in, Charsets.UTF_8);
+        String changed = content.replace("<title>Avoid finalizers</title>", "<title>Use finalizers</title>");
+        assertFalse(content.equals(changed));
+        Files.write(changed, in, Charsets.UTF_8);
+        builder.build().convert();
+        assertTrue(Files.equal(uncached, out));
+        
+        // a changed timestamp renders the topic again
+        changed = changed.replace("timestamp=\"1398323539394\"><title>Use finalizers", "timestamp=\"1398323539395\"><title>Use finalizers");
+        Files.write(changed, in, Charsets.UTF_8);
+        builder.build().convert();
+        String result = Files.toString(out, Charsets.UTF_8);
+        assertTrue(result.contains("Use finalizers"));
+        assertFalse(result.contains("Avoid finalizers"));
+        
+        // other templates discard the cache
+        builder.withMaxLevel(1).build().convert();
+        new XMindToLatexExporter.Builder(in).withTargetFile(uncached).overwritesExistingFiles(true).withMaxLevel(1).build().convert();
+        assertTrue(Files.equal(uncached, out));
+    }
+    
+    @Test
+    public void testExecuteSkipUnchanged() throws Exception {
+        File dir = new File("target/testout/stamp");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File(dir, "map.xmind");
+        File out = new File(dir, "map.tex");
+        Files.copy(new File("src/test/resources/jms.xmind"), in);
+        
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(out)
+                .skipsUnchangedInputs(true);
+        builder.build().convert();
+        assertTrue(new File(dir, "map.tex" + XMindToLatexExporter.STAMP_EXTENSION).exists());
+        
+        // an unchanged input is skipped, thus the existing target is not touched
+        builder.build().convert();
+        
+        // other templates require a conversion
+        try {
+            builder.withMaxLevel(1).build().convert();
+            fail("Expected fail");
+        }
+        catch (FileAlreadyExistsException e) {
+            // expected
+        }
+        builder.withMaxLevel(-1);
+        
+        // a changed target file requires a conversion
+        Files.append("changed", out, Charsets.UTF_8);
+        try {
+            builder.build().convert();
+            fail("Expected fail");
+        }
+        catch (FileAlreadyExistsException e) {
+            // expected
+        }
+        
+        // a changed input is converted
+        Files.copy(new File("src/test/resources/example.xmind"), in);
+        builder.overwritesExistingFiles(true).build().convert();
+        File expected = new File(dir, "expected.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/example.xmind")).withTargetFile(expected).build().convert();
+        assertTrue(Files.equal(expected, out));
+        
+        // switching to chapter files requires a conversion, deleted or changed chapter files are written again
+        builder.writesChapterFiles(true);
+        assertFalse(builder.build().convert().isSkipped());
+        File chapter = XMindToLatexExporter.getChapterFile(XMindToLatexExporter.getChapterDirectory(out), 1);
+        assertTrue(chapter.exists());
+        assertTrue(builder.build().convert().isSkipped());
+        assertTrue(chapter.delete());
+        assertFalse(builder.build().convert().isSkipped());
+        assertTrue(chapter.exists());
+        Files.append("changed", chapter, Charsets.UTF_8);
+        assertFalse(builder.build().convert().isSkipped());
+        assertFalse(Files.toString(chapter, Charsets.UTF_8).endsWith("changed"));
+        assertTrue(builder.build().convert().isSkipped());
+        assertFalse(builder.writesChapterFiles(false).build().convert().isSkipped());
+        assertTrue(Files.equal(expected, out));
+        
+        // XML inputs are always converted
+        File xml = new File(dir, "content.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/content.xml")).withTargetFile(xml).skipsUnchangedInputs(true).build().convert();
+        assertFalse(new File(dir, "content.tex" + XMindToLatexExporter.STAMP_EXTENSION).exists());
+    }
+    
+    @Test
+    public void testExecuteStatistics() throws Exception {
+        MindMapGenerator generator = new MindMapGenerator.Builder()
+                .withTopics(500)
+                .withDepth(4)
+                .build();
+        File in = new File("target/testout/statistics/map.xmind");
+        in.getParentFile().mkdirs();
+        generator.write(in);
+        File out = new File("target/testout/statistics/map.tex");
+        
+        ConversionResult result = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(out)
+                .overwritesExistingFiles(true)
+                .build().convert();
+        assertFalse(result.isSkipped());
+        assertFalse(result.hasStatistics());
+        assertEquals(out.length(), result.getOutputBytes());
+        assertTrue(result.getTopicsPerLevel().isEmpty());
+        assertEquals(-1, result.getPeakHeapUsed());
+        
+        result = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(out)
+                .overwritesExistingFiles(true)
+                .collectsStatistics(true)
+                .build().convert();
+        assertTrue(result.hasStatistics());
+        assertEquals(in, result.getInputFile());
+        assertEquals(out, result.getTargetFile());
+        assertEquals(out.length(), result.getOutputBytes());
+        assertTrue(result.getPeakHeapUsed() > 0);
+        long phases = 0;
+        for (ConversionResult.Phase phase : ConversionResult.Phase.values()) {
+            assertTrue(phase.name(), result.getPhaseTime(phase) > 0);
+            phases += result.getPhaseTime(phase);
+        }
+        assertTrue(phases <= result.getTime());
+        
+        int topics = 0;
+        for (int count : result.getTopicsPerLevel().values()) {
+            topics += count;
+        }
+        assertEquals(generator.getTopics(), topics);
+        assertEquals(generator.getDepth(), result.getTopicsPerLevel().size());
+        
+        // each topic title is rendered once, the map has no notes
+        int renders = 0;
+        long renderTime = 0;
+        for (ConversionResult.TemplateStatistics template : result.getTemplateStatistics().values()) {
+            renders += template.getRenders();
+            renderTime += template.getTime();
+        }
+        assertEquals(generator.getTopics(), renders);
+        assertEquals(result.getPhaseTime(ConversionResult.Phase.RENDER), renderTime);
+        
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        String[] args = new String[] {
+                "-" + INPUT, in.getPath(),
+                "-" + OUTPUT, out.getPath(),
+                "-" + FORCE,
+                "-" + STATISTICS
+        };
+        assertEquals(0, Main.run(args, new PrintStream(report, true, "UTF-8"), System.err, false));
+        String printed = report.toString("UTF-8");
+        assertTrue(printed, printed.startsWith("Statistics of " + in.getAbsolutePath() + " -> " + out + ":"));
+        assertTrue(printed, printed.contains("topics per level:"));
+        assertTrue(printed, printed.contains("output: " + out.length() + " bytes"));
+    }
+    
+    @Test
+    public void testExecuteFlightRecorder() throws Exception {
+        File in = new File("src/test/resources/jms.xmind");
+        File out = new File("target/testout/jfr/jms.tex");
+        File dump = new File("target/testout/jfr/conversion.jfr");
+        out.getParentFile().mkdirs();
+        
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(ConversionEvent.NAME);
+            recording.enable(ParseEvent.NAME);
+            recording.enable(WriteEvent.NAME);
+            recording.enable(TemplateRenderEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+            new XMindToLatexExporter.Builder(in).withTargetFile(out).overwritesExistingFiles(true).build().convert();
+            recording.stop();
+            recording.dump(dump.toPath());
+            events = RecordingFile.readAllEvents(dump.toPath());
+        }
+        
+        Map<String, List<RecordedEvent>> byName = Maps.newHashMap();
+        for (RecordedEvent event : events) {
+            String name = event.getEventType().getName();
+            if (!byName.containsKey(name)) {
+                byName.put(name, Lists.<RecordedEvent> newArrayList());
+            }
+            byName.get(name).add(event);
+        }
+        assertEquals(1, byName.get(ConversionEvent.NAME).size());
+        RecordedEvent conversion = byName.get(ConversionEvent.NAME).get(0);
+        assertEquals(in.getPath(), conversion.getString("input"));
+        assertEquals(out.getPath(), conversion.getString("target"));
+        assertEquals(out.length(), conversion.getLong("bytes"));
+        assertFalse(conversion.getBoolean("skipped"));
+        assertFalse(conversion.getBoolean("failed"));
+        
+        assertEquals(1, byName.get(ParseEvent.NAME).size());
+        assertEquals("STAX", byName.get(ParseEvent.NAME).get(0).getString("parser"));
+        assertEquals(1, byName.get(WriteEvent.NAME).size());
+        assertEquals(out.length(), byName.get(WriteEvent.NAME).get(0).getLong("bytes"));
+        
+        // without threshold, each render is recorded
+        assertFalse(byName.get(TemplateRenderEvent.NAME).isEmpty());
+        for (RecordedEvent render : byName.get(TemplateRenderEvent.NAME)) {
+            assertTrue(render.getString("template").startsWith(TEMPLATE_PACKAGE));
+            assertTrue(render.getInt("level") > 0);
+            assertFalse(render.getDuration().compareTo(conversion.getDuration()) > 0);
+        }
+    }
+    
+    @Test
+    public void testExecuteReplacedFileKeepsPermissions() throws Exception {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        File dir = new File("target/testout/permissions");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File("src/test/resources/content.xml");
+        File out = new File(dir, "content.tex");
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        for (boolean keepUnchanged : new boolean[] {true, false}) {
+            Files.write("changed", out, Charsets.UTF_8);
+            java.nio.file.Files.setPosixFilePermissions(out.toPath(), permissions);
+            new XMindToLatexExporter.Builder(in)
+                    .withTargetFile(out)
+                    .overwritesExistingFiles(true)
+                    .keepsUnchangedFiles(keepUnchanged)
+                    .build().convert();
+            assertFalse(Files.toString(out, Charsets.UTF_8).equals("changed"));
+            assertEquals(permissions, java.nio.file.Files.getPosixFilePermissions(out.toPath()));
+        }
+    }
+    
+    @Test
+    public void testExecuteKeepUnchanged() throws Exception {
+        File dir = new File("target/testout/keep");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File in = new File("src/test/resources/content.xml");
+        File out = new File(dir, "content.tex");
+        File expected = new File(dir, "expected.tex");
+        File expectedLevel1 = new File(dir, "expectedLevel1.tex");
+        new XMindToLatexExporter.Builder(in).withTargetFile(expected).build().convert();
+        new XMindToLatexExporter.Builder(in).withTargetFile(expectedLevel1).withMaxLevel(1).build().convert();
+        
+        XMindToLatexExporter.Builder builder = new XMindToLatexExporter.Builder(in)
+                .withTargetFile(out)
+                .keepsUnchangedFiles(true);
+        builder.build().convert();
+        assertTrue(Files.equal(expected, out));
+        
+        // existing files are still only written with force overwrite
+        try {
+            builder.build().convert();
+            fail("Expected fail");
+        }
+        catch (FileAlreadyExistsException e) {
+            // expected
+        }
+        
+        // an unchanged file is not written
+        builder.overwritesExistingFiles(true);
+        long modified = 1000000000000L;
+        assertTrue(out.setLastModified(modified));
+        builder.build().convert();
+        assertEquals(modified, out.lastModified());
+        assertTrue(Files.equal(expected, out));
+        
+        // changed content replaces the file
+        builder.withMaxLevel(1).build().convert();
+        assertTrue(Files.equal(expectedLevel1, out));
+        
+        // a longer existing file is replaced
+        builder.withMaxLevel(-1);
+        Files.append("appended", out, Charsets.UTF_8);
+        builder.build().convert();
+        assertTrue(Files.equal(expected, out));
+        
+        // a shorter existing file is replaced
+        Files.write(Files.toString(expected, Charsets.UTF_8).substring(0, 100), out, Charsets.UTF_8);
+        builder.build().convert();
+        assertTrue(Files.equal(expected, out));
+        
+        // a failed conversion leaves the existing file untouched
+        File invalid = new File(dir, "invalid.xml");
+        Files.write("<xmap-content><sheet><topic><title>A</title><topic>", invalid, Charsets.UTF_8);
+        try {
+            new XMindToLatexExporter.Builder(invalid).withTargetFile(out).overwritesExistingFiles(true).keepsUnchangedFiles(true).build().convert();
+            fail("Expected fail");
+        }
+        catch (SAXException e) {
+            // expected
+        }
+        assertTrue(Files.equal(expected, out));
+        
+        // also without keeping unchanged files, the existing file is only replaced on success
+        try {
+            new XMindToLatexExporter.Builder(invalid).withTargetFile(out).overwritesExistingFiles(true).build().convert();
+            fail("Expected fail");
+        }
+        catch (SAXException e) {
+            // expected
+        }
+        assertTrue(Files.equal(expected, out));
+        assertEquals(4, dir.list().length);
+    }
+    
+    @Test(timeout = 20000)
+    public void testExecuteDaemon() throws Exception {
+        File dir = new File("target/testout/daemon");
+        FileUtils.deleteDirectory(dir);
+        dir.mkdirs();
+        File daemonFile = new File(dir, "daemon.properties");
+        File out = new File(dir, "content.tex");
+        File expected = new File(dir, "expected.tex");
+        new XMindToLatexExporter.Builder(new File("src/test/resources/content.xml")).withTargetFile(expected).build().convert();
+        
+        final Daemon daemon = new Daemon(0);
+        daemon.publish(daemonFile);
+        Thread thread = new Thread(() -> daemon.serve());
+        thread.start();
+        try {
+            ByteArrayOutputStream messages = new ByteArrayOutputStream();
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            PrintStream stdout = new PrintStream(messages, true, "UTF-8");
+            PrintStream stderr = new PrintStream(errors, true, "UTF-8");
+            
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals(PosixFilePermissions.fromString("rw-------"), java.nio.file.Files.getPosixFilePermissions(daemonFile.toPath()));
+            }
+            
+            String[] args = new String[] {"-" + INPUT, "src/test/resources/content.xml", "-" + OUTPUT, out.getPath(), "-v"};
+            assertEquals(0, Client.run(args, daemonFile, stdout, stderr));
+            assertTrue(Files.equal(expected, out));
+            assertTrue(messages.toString("UTF-8").contains("version"));
+            
+            // relative files are resolved against the directory of the client
+            File relative = new File(dir, "relative.tex");
+            String[] relativeArgs = new String[] {"-" + INPUT, "content.xml", "-" + OUTPUT, "../../../" + relative.getPath()};
+            assertEquals(0, Client.run(relativeArgs, daemonFile, new File("src/test/resources").getAbsoluteFile(), stdout, stderr));
+            assertTrue(Files.equal(expected, relative));
+            
+            // failures are returned
+            assertEquals(-1, Client.run(args, daemonFile, stdout, stderr));
+            assertTrue(errors.toString("UTF-8").contains(out.getAbsolutePath()));
+            
+            // watch mode is not supported by the daemon
+            args = new String[] {"-" + INPUT, "src/test/resources/content.xml", "-" + OUTPUT, out.getPath(), "-w"};
+            assertEquals(-1, Client.run(args, daemonFile, stdout, stderr));
+            
+            // requests with an invalid token are rejected
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(daemonFile)) {
+                properties.load(in);
+            }
+            properties.setProperty("token", "invalid");
+            try (OutputStream o = new FileOutputStream(daemonFile)) {
+                properties.store(o, null);
+            }
+            args = new String[] {"-" + INPUT, "src/test/resources/content.xml", "-" + OUTPUT, out.getPath(), "-" + FORCE};
+            assertEquals(-1, Client.run(args, daemonFile, stdout, stderr));
+        }
+        finally {
+            daemon.close();
+            thread.join();
+        }
+        
+        // without a daemon, the arguments are executed locally
+        String[] args = new String[] {"-" + INPUT, "src/test/resources/content.xml", "-" + OUTPUT, out.getPath(), "-" + FORCE};
+        assertTrue(out.delete());
+        assertEquals(0, Client.run(args, daemonFile, System.out, System.err));
+        assertTrue(Files.equal(expected, out));
+    }
+    
+    @Test
+    public void testExecuteNotOverwriteKeepsContent() throws IOException {
+        File in = new File("src/test/resources/content.xml");
+        File out = new File("target/testout/resultNotOverwritten.tex");
+        out.getParentFile().mkdirs();
+        Files.write("existing", out, Charsets.UTF_8);
+        
+        XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(in).withTargetFile(out).build();
+        try {
+            exporter.convert();
+            fail("Expected fail");
+        }
+        catch (Exception e) {
+            assertTrue(e instanceof FileAlreadyExistsException);
+        }
+        assertEquals("existing", Files.toString(out, Charsets.UTF_8));
+    }
+    
+    @Test
+    public void testExecuteInvalidInputRemovesTarget() throws IOException {
+        File in = new File("target/testout/invalid.xml");
+        File out = new File("target/testout/invalid.tex");
+        in.getParentFile().mkdirs();
+        Files.write("<xmap-content><sheet><topic><title>unclosed</title></sheet>", in, Charsets.UTF_8);
+        out.delete();
+        
+        for (ParserType parser : ParserType.values()) {
+            XMindToLatexExporter exporter = new XMindToLatexExporter.Builder(in).withTargetFile(out).withParser(parser).build();
+            try {
+                exporter.convert();
+                fail("Expected fail");
+            }
+            catch (Exception e) {
+                assertTrue(e instanceof SAXException);
+            }
+            assertFalse(out.exists());
+        }
+    }
+    
     @Test
     public void testExecuteWithEnvironments() {
         File in = new File("src/test/resources/jms.xmind");
@@ -400,6 +1413,68 @@ public class XMindToLatexExporterExecutionTest {
         }
     }
     
+    @Test
+    public void testStaxAndDomOutputIdentical() throws Exception {
+        String[] inputs = new String[] {"content.xml", "example.xmind", "jms.xmind", "WithEmptyNode.xmind"};
+        for (String input : inputs) {
+            File in = new File("src/test/resources/" + input);
+            File stax = new File("target/testout/parser/" + input + ".stax.tex");
+            File dom = new File("target/testout/parser/" + input + ".dom.tex");
+            
+            new XMindToLatexExporter.Builder(in)
+                    .withTargetFile(stax)
+                    .overwritesExistingFiles(true)
+                    .withEnvironmentTemplates(4, TEMPLATE_PACKAGE + "env.startEnumerate", TEMPLATE_PACKAGE + "env.endEnumerate")
+                    .withTemplate(4, TEMPLATE_PACKAGE + "env.item")
+                    .build().convert();
+            new XMindToLatexExporter.Builder(in)
+                    .withTargetFile(dom)
+                    .overwritesExistingFiles(true)
+                    .withEnvironmentTemplates(4, TEMPLATE_PACKAGE + "env.startEnumerate", TEMPLATE_PACKAGE + "env.endEnumerate")
+                    .withTemplate(4, TEMPLATE_PACKAGE + "env.item")
+                    .withParser(ParserType.DOM)
+                    .build().convert();
+            
+            assertTrue(input, Files.equal(dom, stax));
+        }
+    }
+    
+    @Test
+    public void testExecuteGeneratedMap() throws Exception {
+        MindMapGenerator generator = new MindMapGenerator.Builder()
+                .withTopics(10000)
+                .withDepth(12)
+                .withSheets(3)
+                .withNotes(30)
+                .withAttachments(10, 200000)
+                .build();
+        File in = new File("target/testout/generated/generated.xmind");
+        in.getParentFile().mkdirs();
+        generator.write(in);
+        File stax = new File("target/testout/generated/generated.stax.tex");
+        File dom = new File("target/testout/generated/generated.dom.tex");
+        
+        new XMindToLatexExporter.Builder(in).withTargetFile(stax).overwritesExistingFiles(true).build().convert();
+        new XMindToLatexExporter.Builder(in).withTargetFile(dom).overwritesExistingFiles(true).withParser(ParserType.DOM).build().convert();
+        assertTrue(Files.equal(dom, stax));
+        
+        // one rendered line per topic title and note, sheet titles are not rendered
+        int rendered = 0;
+        int chapters = 0;
+        for (String line : Files.readLines(stax, Charsets.UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                rendered++;
+            }
+            if (line.startsWith("\\chapter{")) {
+                chapters++;
+            }
+        }
+        assertEquals(2 * generator.getTopics(), rendered);
+        // the title and the note of each root topic
+        assertEquals(generator.getSheets() * 2, chapters);
+        assertTrue(FileUtils.readFileToString(stax, "UTF-8").contains("R&D"));
+    }
+    
     @Test
     public void testExecuteWithMaxLevel2() {
         File in = new File("src/test/resources/jms.xmind");
@@ -22,6 +22,7 @@ package de.haber.xmind2latex;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -29,12 +30,16 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import de.haber.xmind2latex.cli.CliParameters;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
 
 /**
  * Further {@link XMindToLatexExporter} tests that do not concern configuration
@@ -83,11 +88,12 @@ public class XMindToLatexExporterTest {
         try {
             exporter = CliParameters.build(args);
             
-            Method getTextForLevel = exporter.getClass().getDeclaredMethod("getTextForLevel", int.class, String.class);
+            Method getTextForLevel = exporter.getClass().getDeclaredMethod("getTextForLevel", ConversionState.class, int.class, String.class);
             assertNotNull(getTextForLevel);
             getTextForLevel.setAccessible(true);
             String txt = "a \nb \nc \n";
-            String undef = (String) getTextForLevel.invoke(exporter, 7, txt);
+            ConversionState state = new ConversionState(exporter.getTemplates().size(), null, null);
+            String undef = (String) getTextForLevel.invoke(exporter, state, 7, txt);
             assertTrue(undef.contains("    % 2 - a \n"));
             assertTrue(undef.contains("\n    %   - b"));
             assertTrue(undef.contains("\n    %   - c"));
@@ -99,6 +105,35 @@ public class XMindToLatexExporterTest {
         }
     }
     
+    @Test
+    public void testPlainTemplates() throws Exception {
+        PlainTemplate chapter = PlainTemplate.compile(createTemplate("<#--\n comment\n-->\n\\chapter{${text}}\n"));
+        assertNotNull(chapter);
+        StringWriter out = new StringWriter();
+        chapter.render(out, new LevelModel(1, -3, "").withText("a & b"));
+        assertEquals("\\chapter{a & b}\n", out.toString());
+        
+        PlainTemplate all = PlainTemplate.compile(createTemplate("${indent}${level}/${innerLevel}: ${text}${text}"));
+        assertNotNull(all);
+        out = new StringWriter();
+        all.render(out, new LevelModel(5, 2, "  ").withText("t"));
+        assertEquals("  5/2: tt", out.toString());
+        assertNotNull(PlainTemplate.compile(createTemplate("\\begin{itemize}")));
+        
+        // directives, built-ins, unknown variables and numerical interpolations require FreeMarker
+        assertNull(PlainTemplate.compile(createTemplate("<#if level == \"1\">${text}</#if>")));
+        assertNull(PlainTemplate.compile(createTemplate("<#assign str = text>${str}")));
+        assertNull(PlainTemplate.compile(createTemplate("${text?upper_case}")));
+        assertNull(PlainTemplate.compile(createTemplate("${text + indent}")));
+        assertNull(PlainTemplate.compile(createTemplate("${unknown!}")));
+        assertNull(PlainTemplate.compile(createTemplate("#{level?number}")));
+        assertNull(PlainTemplate.compile(createTemplate("<#macro m>x</#macro><@m/>${text}")));
+    }
+    
+    private static Template createTemplate(String source) throws IOException {
+        return new Template("test", new StringReader(source), new Configuration());
+    }
+    
     @Test
     public void testSave() {
         File in = new File("src/test/resources/content.xml");
@@ -115,12 +150,12 @@ public class XMindToLatexExporterTest {
         try {
             exporter = CliParameters.build(args);
             
-            Method save = exporter.getClass().getDeclaredMethod("save", String.class);
+            Method save = exporter.getClass().getDeclaredMethod("save", File.class, String.class);
             assertNotNull(save);
             save.setAccessible(true);
             
             String txt = "ä ü ö ? ß Ü Ä Ö ";
-            save.invoke(exporter, txt);
+            save.invoke(exporter, out, txt);
             String content = FileUtils.readFileToString(out, "UTF-8");
             assertEquals(txt, content);
             